@@ -0,0 +1,37 @@
+package mu.node.rexweather.app.Helpers;
+
+import java.util.concurrent.TimeoutException;
+
+import mu.node.rexweather.app.R;
+import mu.node.rexweather.app.Services.WebServiceException;
+import retrofit.RetrofitError;
+import rx.exceptions.CompositeException;
+
+/**
+ * Picks the message to show the user when fetching the weather fails.
+ */
+public class FetchErrorMessages {
+
+    private FetchErrorMessages() {
+    }
+
+    /**
+     * The string resource explaining an error, or 0 if the error is unexpected. A plain
+     * {@link TimeoutException} means we never got a location fix. The web service timing out is
+     * reported as a {@link WebServiceException} instead.
+     */
+    public static int forError(final Throwable fetchError) {
+        // Both parts of the weather may have failed.
+        final Throwable error = fetchError instanceof CompositeException
+                ? ((CompositeException) fetchError).getExceptions().get(0)
+                : fetchError;
+
+        if (error instanceof TimeoutException) {
+            return R.string.error_location_unavailable;
+        } else if (error instanceof RetrofitError || error instanceof WebServiceException) {
+            return R.string.error_fetch_weather;
+        } else {
+            return 0;
+        }
+    }
+}
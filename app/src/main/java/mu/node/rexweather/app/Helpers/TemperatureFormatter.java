@@ -1,8 +0,0 @@
-package mu.node.rexweather.app.Helpers;
-
-public class TemperatureFormatter {
-
-    public static String format(float temperature) {
-        return String.valueOf(Math.round(temperature)) + "°";
-    }
-}
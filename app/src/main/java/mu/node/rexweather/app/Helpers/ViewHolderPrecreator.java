@@ -0,0 +1,90 @@
+package mu.node.rexweather.app.Helpers;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * Creates view holders for an empty list ahead of time, while the main thread has nothing else
+ * to do, e.g. while the list's data is being fetched. The holders are put in the list's recycled
+ * view pool, so that the frame in which the data arrives only has to bind them rather than
+ * inflate their layouts as well.
+ * <p/>
+ * One holder is created each time the main thread goes idle, so that frames and input are never
+ * held up by more than a single inflation. Creation stops as soon as the list has items, as from
+ * then on it creates whatever holders it still needs itself.
+ */
+public class ViewHolderPrecreator implements MessageQueue.IdleHandler {
+    private final RecyclerView mRecyclerView;
+    private final RecyclerView.Adapter<?> mAdapter;
+    private final SparseIntArray mRemainingCounts = new SparseIntArray();
+    private boolean mIsStarted;
+
+    // Does nothing, but lets the main thread go idle again once it has run.
+    private final Runnable mWakeUp = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    public ViewHolderPrecreator(final RecyclerView recyclerView,
+                                final RecyclerView.Adapter<?> adapter) {
+        mRecyclerView = recyclerView;
+        mAdapter = adapter;
+    }
+
+    /**
+     * Create holders of a view type ahead of time. The pool is grown to hold them all.
+     */
+    public void precreate(final int viewType, final int count) {
+        mRecyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, count);
+        mRemainingCounts.put(viewType, mRemainingCounts.get(viewType) + count);
+    }
+
+    public void start() {
+        if (!mIsStarted && mRemainingCounts.size() > 0) {
+            mIsStarted = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Stop creating holders. Those created so far stay in the pool.
+     */
+    public void stop() {
+        if (mIsStarted) {
+            mIsStarted = false;
+            Looper.myQueue().removeIdleHandler(this);
+            mRecyclerView.removeCallbacks(mWakeUp);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mAdapter.getItemCount() > 0 || mRemainingCounts.size() == 0) {
+            mIsStarted = false;
+            return false;
+        }
+
+        final int viewType = mRemainingCounts.keyAt(0);
+        final int remainingCount = mRemainingCounts.valueAt(0) - 1;
+        if (remainingCount > 0) {
+            mRemainingCounts.put(viewType, remainingCount);
+        } else {
+            mRemainingCounts.removeAt(0);
+        }
+
+        mRecyclerView.getRecycledViewPool()
+                     .putRecycledView(mAdapter.createViewHolder(mRecyclerView, viewType));
+
+        if (mRemainingCounts.size() == 0) {
+            mIsStarted = false;
+            return false;
+        }
+
+        // Idle handlers only run once each time the queue runs dry, so queue something to run.
+        mRecyclerView.post(mWakeUp);
+        return true;
+    }
+}
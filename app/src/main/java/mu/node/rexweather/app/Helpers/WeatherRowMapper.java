@@ -0,0 +1,74 @@
+package mu.node.rexweather.app.Helpers;
+
+import android.content.Context;
+import android.text.format.DateFormat;
+
+import java.util.Date;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherRows;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * Turns weather snapshots into the rows of the forecast list, formatting day labels, times and
+ * temperatures once per snapshot rather than each time a row is bound.
+ * <p/>
+ * Meant to run on a background thread. The formatters it reuses are not thread safe, so calls
+ * are serialized.
+ */
+public class WeatherRowMapper {
+    private static final long MILLISECONDS_IN_SECONDS = 1000;
+
+    private final DayFormatter mDayFormatter;
+    private final java.text.DateFormat mTimeFormat;
+    private final Date mDate = new Date();
+
+    public WeatherRowMapper(final Context context) {
+        mDayFormatter = new DayFormatter(context);
+        mTimeFormat = DateFormat.getTimeFormat(context);
+    }
+
+    /**
+     * Build the rows for a snapshot, labelling days relative to the given current time, in
+     * milliseconds.
+     */
+    public synchronized WeatherRows map(final WeatherSnapshot snapshot,
+                                        final TemperatureFormatter.Unit unit,
+                                        final long now) {
+        final CurrentWeather currentWeather = snapshot.getCurrentWeather();
+        WeatherRows.Header header = null;
+        if (currentWeather != null) {
+            header = new WeatherRows.Header(currentWeather.getLocationName(),
+                    currentWeather.getCondition().getIconGlyph(),
+                    TemperatureFormatter.format(currentWeather.getTemperature(), unit));
+        }
+
+        final ForecastSeries forecasts = snapshot.getWeatherForecasts();
+        final WeatherRows.Forecast[] forecastRows = new WeatherRows.Forecast[forecasts.size()];
+        for (int i = 0; i < forecastRows.length; i++) {
+            final long timestamp = forecasts.getTimestamp(i);
+            String day = mDayFormatter.format(timestamp, now);
+            if (snapshot.isHourly()) {
+                mDate.setTime(timestamp * MILLISECONDS_IN_SECONDS);
+                day = day + " " + mTimeFormat.format(mDate);
+            }
+
+            final WeatherCondition condition = forecasts.getCondition(i);
+            forecastRows[i] = new WeatherRows.Forecast(day, condition.getIconGlyph(),
+                    condition.getDescription(),
+                    TemperatureFormatter.format(forecasts.getMaximumTemperature(i), unit),
+                    TemperatureFormatter.format(forecasts.getMinimumTemperature(i), unit));
+        }
+
+        return new WeatherRows(snapshot, unit, header, forecastRows);
+    }
+
+    /**
+     * Whether a time, in milliseconds, falls on the same day as the given current time.
+     */
+    public synchronized boolean isToday(final long milliseconds, final long now) {
+        return mDayFormatter.isToday(milliseconds, now);
+    }
+}
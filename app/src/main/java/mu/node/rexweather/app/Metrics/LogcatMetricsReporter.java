@@ -0,0 +1,15 @@
+package mu.node.rexweather.app.Metrics;
+
+import android.util.Log;
+
+/**
+ * Writes metrics snapshots to logcat.
+ */
+public class LogcatMetricsReporter implements MetricsReporter {
+    private static final String TAG = LogcatMetricsReporter.class.getCanonicalName();
+
+    @Override
+    public void report(final MetricsSnapshot snapshot) {
+        Log.d(TAG, snapshot.toString());
+    }
+}
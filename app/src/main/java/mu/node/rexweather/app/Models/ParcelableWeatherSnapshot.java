@@ -0,0 +1,113 @@
+package mu.node.rexweather.app.Models;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parcelable wrapper for a weather snapshot, so that what we showed survives the process being
+ * killed while we are in the background. The models live in the core module, which knows
+ * nothing of Android, so they are flattened here instead.
+ */
+public class ParcelableWeatherSnapshot implements Parcelable {
+    private final WeatherSnapshot mSnapshot;
+
+    public ParcelableWeatherSnapshot(final WeatherSnapshot snapshot) {
+        mSnapshot = snapshot;
+    }
+
+    public WeatherSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel parcel, final int flags) {
+        parcel.writeString(mSnapshot.getLocationCell());
+
+        final CurrentWeather currentWeather = mSnapshot.getCurrentWeather();
+        parcel.writeByte((byte) (currentWeather != null ? 1 : 0));
+        if (currentWeather != null) {
+            parcel.writeInt(currentWeather.getCityId());
+            parcel.writeString(currentWeather.getLocationName());
+            parcel.writeLong(currentWeather.getTimestamp());
+            parcel.writeInt(currentWeather.getCondition().getCode());
+            parcel.writeFloat(currentWeather.getTemperature());
+            parcel.writeFloat(currentWeather.getMinimumTemperature());
+            parcel.writeFloat(currentWeather.getMaximumTemperature());
+        }
+
+        parcel.writeByte((byte) (mSnapshot.isHourly() ? 1 : 0));
+        if (mSnapshot.isHourly()) {
+            writeSeries(parcel, mSnapshot.getWeatherForecasts());
+            writeSeries(parcel, mSnapshot.toDaily().getWeatherForecasts());
+        } else {
+            writeSeries(parcel, mSnapshot.getWeatherForecasts());
+        }
+    }
+
+    public static final Creator<ParcelableWeatherSnapshot> CREATOR =
+            new Creator<ParcelableWeatherSnapshot>() {
+                @Override
+                public ParcelableWeatherSnapshot createFromParcel(final Parcel parcel) {
+                    final String locationCell = parcel.readString();
+
+                    CurrentWeather currentWeather = null;
+                    if (parcel.readByte() != 0) {
+                        currentWeather = new CurrentWeather(parcel.readInt(),
+                                                            parcel.readString(),
+                                                            parcel.readLong(),
+                                                            WeatherCondition.forCode(
+                                                                    parcel.readInt()),
+                                                            parcel.readFloat(),
+                                                            parcel.readFloat(),
+                                                            parcel.readFloat());
+                    }
+
+                    final WeatherSnapshot snapshot;
+                    if (parcel.readByte() != 0) {
+                        final ForecastSeries hourlyForecasts = readSeries(parcel);
+                        final ForecastSeries dailyForecasts = readSeries(parcel);
+                        snapshot = new WeatherSnapshot(currentWeather,
+                                new HourlyForecast(hourlyForecasts, dailyForecasts));
+                    } else {
+                        snapshot = new WeatherSnapshot(currentWeather, readSeries(parcel));
+                    }
+
+                    return new ParcelableWeatherSnapshot(snapshot.withLocationCell(locationCell));
+                }
+
+                @Override
+                public ParcelableWeatherSnapshot[] newArray(final int size) {
+                    return new ParcelableWeatherSnapshot[size];
+                }
+            };
+
+    private static void writeSeries(final Parcel parcel, final ForecastSeries series) {
+        parcel.writeString(series.getLocationName());
+        parcel.writeInt(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            parcel.writeLong(series.getTimestamp(i));
+            parcel.writeInt(series.getConditionCode(i));
+            parcel.writeFloat(series.getMinimumTemperature(i));
+            parcel.writeFloat(series.getMaximumTemperature(i));
+        }
+    }
+
+    private static ForecastSeries readSeries(final Parcel parcel) {
+        final String locationName = parcel.readString();
+        final int size = parcel.readInt();
+        final ForecastSeries series = new ForecastSeries(locationName, size);
+        for (int i = 0; i < size; i++) {
+            series.append(parcel.readLong(),
+                          WeatherCondition.forCode(parcel.readInt()),
+                          parcel.readFloat(),
+                          parcel.readFloat());
+        }
+
+        return series;
+    }
+}
@@ -0,0 +1,120 @@
+package mu.node.rexweather.app.Models;
+
+import mu.node.rexweather.app.Helpers.TemperatureFormatter;
+
+/**
+ * The rows of the forecast list for a weather snapshot, with all their text ready to be shown,
+ * so that binding a row only has to hand it to its views. Built off the main thread by
+ * {@link mu.node.rexweather.app.Helpers.WeatherRowMapper}.
+ */
+public class WeatherRows {
+    private final WeatherSnapshot mSnapshot;
+    private final TemperatureFormatter.Unit mUnit;
+    private final Header mHeader;
+    private final Forecast[] mForecasts;
+
+    public WeatherRows(final WeatherSnapshot snapshot,
+                       final TemperatureFormatter.Unit unit,
+                       final Header header,
+                       final Forecast[] forecasts) {
+        mSnapshot = snapshot;
+        mUnit = unit;
+        mHeader = header;
+        mForecasts = forecasts;
+    }
+
+    /**
+     * The snapshot the rows were built from.
+     */
+    public WeatherSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    public TemperatureFormatter.Unit getUnit() {
+        return mUnit;
+    }
+
+    /**
+     * The current weather row, or null if the snapshot has no current weather.
+     */
+    public Header getHeader() {
+        return mHeader;
+    }
+
+    public int getForecastCount() {
+        return mForecasts.length;
+    }
+
+    public Forecast getForecast(final int index) {
+        return mForecasts[index];
+    }
+
+    /**
+     * The current weather, shown above the forecasts.
+     */
+    public static class Header {
+        private final CharSequence mLocationName;
+        private final String mIconGlyph;
+        private final CharSequence mTemperature;
+
+        public Header(final CharSequence locationName, final String iconGlyph,
+                      final CharSequence temperature) {
+            mLocationName = locationName;
+            mIconGlyph = iconGlyph;
+            mTemperature = temperature;
+        }
+
+        public CharSequence getLocationName() {
+            return mLocationName;
+        }
+
+        public String getIconGlyph() {
+            return mIconGlyph;
+        }
+
+        public CharSequence getTemperature() {
+            return mTemperature;
+        }
+    }
+
+    /**
+     * One forecast, for a day or a 3 hour step.
+     */
+    public static class Forecast {
+        private final CharSequence mDay;
+        private final String mIconGlyph;
+        private final CharSequence mDescription;
+        private final CharSequence mMaximumTemperature;
+        private final CharSequence mMinimumTemperature;
+
+        public Forecast(final CharSequence day, final String iconGlyph,
+                        final CharSequence description, final CharSequence maximumTemperature,
+                        final CharSequence minimumTemperature) {
+            mDay = day;
+            mIconGlyph = iconGlyph;
+            mDescription = description;
+            mMaximumTemperature = maximumTemperature;
+            mMinimumTemperature = minimumTemperature;
+        }
+
+        public CharSequence getDay() {
+            return mDay;
+        }
+
+        public String getIconGlyph() {
+            return mIconGlyph;
+        }
+
+        public CharSequence getDescription() {
+            return mDescription;
+        }
+
+        public CharSequence getMaximumTemperature() {
+            return mMaximumTemperature;
+        }
+
+        public CharSequence getMinimumTemperature() {
+            return mMinimumTemperature;
+        }
+    }
+}
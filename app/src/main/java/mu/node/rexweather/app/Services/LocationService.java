@@ -5,58 +5,140 @@ import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 /**
  * Implement an Rx-style location service by wrapping the Android LocationManager and providing
  * the location result as an Observable.
+ * <p/>
+ * A single hot subscription to the LocationManager is shared by all subscribers, and runs on a
+ * dedicated looper thread. If the LocationManager already knows a recent and accurate enough
+ * fix, it is emitted straight away and then refined by a fresh one.
  */
 public class LocationService {
+    public static final long DEFAULT_MAXIMUM_AGE_MILLISECONDS = TimeUnit.MINUTES.toMillis(10);
+    public static final float DEFAULT_MAXIMUM_ACCURACY_METRES = 5000;
+
     private final LocationManager mLocationManager;
+    private final long mMaximumAgeMilliseconds;
+    private final float mMaximumAccuracyMetres;
+    private final Looper mLooper;
+    private final Observable<Location> mLocation;
 
     public LocationService(LocationManager locationManager) {
-        mLocationManager = locationManager;
+        this(locationManager, DEFAULT_MAXIMUM_AGE_MILLISECONDS, DEFAULT_MAXIMUM_ACCURACY_METRES);
     }
 
-    public Observable<Location> getLocation() {
-        return Observable.create(new Observable.OnSubscribe<Location>() {
+    public LocationService(final LocationManager locationManager,
+                           final long maximumAgeMilliseconds,
+                           final float maximumAccuracyMetres) {
+        mLocationManager = locationManager;
+        mMaximumAgeMilliseconds = maximumAgeMilliseconds;
+        mMaximumAccuracyMetres = maximumAccuracyMetres;
+
+        final HandlerThread looperThread = new HandlerThread("location");
+        looperThread.start();
+        mLooper = looperThread.getLooper();
+        final Scheduler looperScheduler = AndroidSchedulers.handlerThread(new Handler(mLooper));
+
+        mLocation = Observable.create(new Observable.OnSubscribe<Location>() {
             @Override
             public void call(final Subscriber<? super Location> subscriber) {
+                requestLocation(subscriber);
+            }
+        }).subscribeOn(looperScheduler)
+                .unsubscribeOn(looperScheduler)
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * Get our location: a recent cached fix if there is one, followed by a fresh fix.
+     * <p/>
+     * Concurrent subscribers share the same request, and late subscribers are replayed the
+     * latest fix. Location updates stop once the fresh fix arrives or the last subscriber
+     * unsubscribes.
+     */
+    public Observable<Location> getLocation() {
+        return mLocation;
+    }
 
-                final LocationListener locationListener = new LocationListener() {
-                    public void onLocationChanged(final Location location) {
-                        subscriber.onNext(location);
-                        subscriber.onCompleted();
+    /**
+     * The most recent fix known to any location provider, however old or inaccurate.
+     */
+    public Location getLastKnownLocation() {
+        Location lastKnownLocation = null;
 
-                        Looper.myLooper().quit();
-                    }
+        for (final String provider : mLocationManager.getProviders(true)) {
+            final Location location = mLocationManager.getLastKnownLocation(provider);
+            if (location != null && (lastKnownLocation == null
+                    || location.getTime() > lastKnownLocation.getTime())) {
+                lastKnownLocation = location;
+            }
+        }
+
+        return lastKnownLocation;
+    }
 
-                    public void onStatusChanged(String provider, int status, Bundle extras) {
-                    }
+    private void requestLocation(final Subscriber<? super Location> subscriber) {
+        final Location lastKnownLocation = getLastKnownLocation();
+        if (lastKnownLocation != null && isFreshEnough(lastKnownLocation)) {
+            subscriber.onNext(lastKnownLocation);
+        }
 
-                    public void onProviderEnabled(String provider) {
-                    }
+        final LocationListener locationListener = new LocationListener() {
+            public void onLocationChanged(final Location location) {
+                subscriber.onNext(location);
+                subscriber.onCompleted();
+            }
+
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
 
-                    public void onProviderDisabled(String provider) {
-                    }
-                };
+            public void onProviderEnabled(String provider) {
+            }
 
-                final Criteria locationCriteria = new Criteria();
-                locationCriteria.setAccuracy(Criteria.ACCURACY_COARSE);
-                locationCriteria.setPowerRequirement(Criteria.POWER_LOW);
-                final String locationProvider = mLocationManager
-                        .getBestProvider(locationCriteria, true);
+            public void onProviderDisabled(String provider) {
+            }
+        };
 
-                Looper.prepare();
+        final Criteria locationCriteria = new Criteria();
+        locationCriteria.setAccuracy(Criteria.ACCURACY_COARSE);
+        locationCriteria.setPowerRequirement(Criteria.POWER_LOW);
+        final String locationProvider = mLocationManager
+                .getBestProvider(locationCriteria, true);
 
-                mLocationManager.requestSingleUpdate(locationProvider,
-                        locationListener, Looper.myLooper());
+        // Without an enabled provider, the subscriber's timeout will have to end the wait.
+        if (locationProvider == null) {
+            return;
+        }
 
-                Looper.loop();
+        subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                mLocationManager.removeUpdates(locationListener);
             }
-        });
+        }));
+
+        mLocationManager.requestLocationUpdates(locationProvider, 0, 0, locationListener,
+                mLooper);
+    }
+
+    private boolean isFreshEnough(final Location location) {
+        final long age = System.currentTimeMillis() - location.getTime();
+        return age <= mMaximumAgeMilliseconds
+                && location.hasAccuracy()
+                && location.getAccuracy() <= mMaximumAccuracyMetres;
     }
-}
\ No newline at end of file
+}
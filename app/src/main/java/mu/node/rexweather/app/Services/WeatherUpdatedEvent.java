@@ -0,0 +1,19 @@
+package mu.node.rexweather.app.Services;
+
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * Posted on the EventBus when a background refresh finds weather that differs from what we
+ * last showed.
+ */
+public class WeatherUpdatedEvent {
+    private final WeatherSnapshot mSnapshot;
+
+    public WeatherUpdatedEvent(final WeatherSnapshot snapshot) {
+        mSnapshot = snapshot;
+    }
+
+    public WeatherSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+}
@@ -1,18 +1,155 @@
 package mu.node.rexweather.app;
 
 import android.app.Application;
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationManager;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+
+import de.greenrobot.event.EventBus;
+
+import mu.node.rexweather.app.Metrics.LogcatMetricsReporter;
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+import mu.node.rexweather.app.Services.Clock;
+import mu.node.rexweather.app.Services.LocationService;
+import mu.node.rexweather.app.Services.NetworkStack;
+import mu.node.rexweather.app.Services.OpenWeatherMapProvider;
+import mu.node.rexweather.app.Services.RateLimiter;
+import mu.node.rexweather.app.Services.RefreshScheduler;
+import mu.node.rexweather.app.Services.WeatherMemoryCache;
+import mu.node.rexweather.app.Services.WeatherService;
+import mu.node.rexweather.app.Services.WeatherSnapshotStore;
+import mu.node.rexweather.app.Services.WeatherUpdatedEvent;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func2;
+import rx.schedulers.Schedulers;
 
 public class WeatherApplication extends Application {
 
     private static WeatherApplication mInstance;
 
+    private WeatherMetrics mWeatherMetrics;
+    private WeatherMemoryCache mWeatherMemoryCache;
+    private NetworkStack mNetworkStack;
+    private WeatherService mWeatherService;
+    private LocationService mLocationService;
+    private WeatherSnapshotStore mWeatherSnapshotStore;
+    private RefreshScheduler mRefreshScheduler;
+
     @Override
     public void onCreate() {
         super.onCreate();
         mInstance = this;
+
+        mWeatherMetrics = new WeatherMetrics();
+        mWeatherMetrics.setReporter(new LogcatMetricsReporter());
+        mWeatherMemoryCache = new WeatherMemoryCache();
+
+        // The response cache owns its directory on disk, so only one stack may exist per process.
+        mNetworkStack = new NetworkStack(getCacheDir(), mWeatherMetrics);
+        mNetworkStack.prewarm(OpenWeatherMapProvider.WEB_SERVICE_BASE_URL);
+        mWeatherService = new WeatherService(mNetworkStack, mWeatherMemoryCache, mWeatherMetrics);
+        mLocationService = new LocationService(
+                (LocationManager) getSystemService(Context.LOCATION_SERVICE));
+        // Snapshots are written on a thread of their own, so that disk writes never wait behind
+        // requests or delay them.
+        mWeatherSnapshotStore = new WeatherSnapshotStore(
+                new File(getCacheDir(), "weather.snapshot"), Executors.newSingleThreadExecutor());
+
+        mRefreshScheduler = new RefreshScheduler(new Func0<Observable<WeatherSnapshot>>() {
+            @Override
+            public Observable<WeatherSnapshot> call() {
+                return refreshWeatherInBackground();
+            }
+        }, new Action1<WeatherSnapshot>() {
+            @Override
+            public void call(final WeatherSnapshot snapshot) {
+                EventBus.getDefault().post(new WeatherUpdatedEvent(snapshot));
+            }
+        }, Clock.MONOTONIC, Schedulers.computation(),
+                RefreshScheduler.DEFAULT_CADENCE_MILLISECONDS);
+    }
+
+    /**
+     * Fetch the weather for wherever we last were, without waiting on a fresh location fix.
+     */
+    private Observable<WeatherSnapshot> refreshWeatherInBackground() {
+        final Location location = mLocationService.getLastKnownLocation();
+        if (location == null) {
+            return Observable.empty();
+        }
+
+        return Observable.zip(
+                mWeatherService.fetchCurrentWeather(location.getLongitude(),
+                        location.getLatitude(), RateLimiter.Priority.BACKGROUND),
+                mWeatherService.fetchWeatherForecasts(location.getLongitude(),
+                        location.getLatitude(), RateLimiter.Priority.BACKGROUND),
+                new Func2<CurrentWeather, ForecastSeries, WeatherSnapshot>() {
+                    @Override
+                    public WeatherSnapshot call(final CurrentWeather currentWeather,
+                                                final ForecastSeries weatherForecasts) {
+                        return new WeatherSnapshot(currentWeather, weatherForecasts)
+                                .withLocationCell(mWeatherService.getLocationCell(
+                                        location.getLongitude(), location.getLatitude()));
+                    }
+                }).doOnNext(new Action1<WeatherSnapshot>() {
+                    @Override
+                    public void call(final WeatherSnapshot snapshot) {
+                        mWeatherSnapshotStore.writeInBackground(snapshot);
+                    }
+                });
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+
+        // Parsed weather is cheap to rebuild from the disk cache, so give it up early.
+        if (level >= TRIM_MEMORY_MODERATE) {
+            mWeatherMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mWeatherMemoryCache.trimToFraction(0.5f);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        mWeatherMemoryCache.evictAll();
     }
 
     public static WeatherApplication get() {
         return mInstance;
     }
+
+    public NetworkStack getNetworkStack() {
+        return mNetworkStack;
+    }
+
+    public WeatherMetrics getWeatherMetrics() {
+        return mWeatherMetrics;
+    }
+
+    public WeatherService getWeatherService() {
+        return mWeatherService;
+    }
+
+    public LocationService getLocationService() {
+        return mLocationService;
+    }
+
+    public WeatherSnapshotStore getWeatherSnapshotStore() {
+        return mWeatherSnapshotStore;
+    }
+
+    public RefreshScheduler getRefreshScheduler() {
+        return mRefreshScheduler;
+    }
 }
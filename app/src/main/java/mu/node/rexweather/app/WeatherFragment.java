@@ -1,8 +1,6 @@
 package mu.node.rexweather.app;
 
-import android.content.Context;
 import android.location.Location;
-import android.location.LocationManager;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -14,49 +12,70 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import org.apache.http.HttpException;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
+import com.github.pwittchen.weathericonview.WeatherIconView;
+import de.greenrobot.event.EventBus;
 import de.keyboardsurfer.android.widget.crouton.Crouton;
 import de.keyboardsurfer.android.widget.crouton.Style;
-import mu.node.rexweather.app.Helpers.DayFormatter;
 import mu.node.rexweather.app.Helpers.DividerItemDecoration;
+import mu.node.rexweather.app.Helpers.FetchErrorMessages;
 import mu.node.rexweather.app.Helpers.TemperatureFormatter;
+import mu.node.rexweather.app.Helpers.ViewHolderPrecreator;
+import mu.node.rexweather.app.Helpers.WeatherRowMapper;
+import mu.node.rexweather.app.Helpers.WeatherSnapshotDiff;
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
 import mu.node.rexweather.app.Models.CurrentWeather;
-import mu.node.rexweather.app.Models.WeatherForecast;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.ParcelableWeatherSnapshot;
+import mu.node.rexweather.app.Models.WeatherRows;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
 import mu.node.rexweather.app.Services.LocationService;
 import mu.node.rexweather.app.Services.WeatherService;
-import retrofit.RetrofitError;
+import mu.node.rexweather.app.Services.WeatherUpdatedEvent;
 import rx.Observable;
 import rx.Subscriber;
 import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.functions.Func2;
+import rx.observables.ConnectableObservable;
 import rx.schedulers.Schedulers;
 import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.SerialSubscription;
+import rx.subscriptions.Subscriptions;
 
 /**
  * Weather Fragment.
  * <p/>
  * Displays the current weather as well as a 7 day forecast for our location. Data is loaded
- * from a web service.
+ * from a web service. The forecast can be switched to 3 hour steps for the coming five days,
+ * which are added to the list a window at a time as it is scrolled.
  */
 public class WeatherFragment extends Fragment {
 
     private static final int WEATHER_HEADER = 0;
     private static final int WEATHER_ITEM   = 1;
 
-    private static final String KEY_CURRENT_WEATHER      = "key_current_weather";
-    private static final String KEY_WEATHER_FORECASTS    = "key_weather_forecasts";
     private static final long   LOCATION_TIMEOUT_SECONDS = 20;
     private static final String TAG                      = WeatherFragment.class.getCanonicalName();
+    private static final String ENDPOINT_LOCATION        = "location";
+    private static final String STATE_SNAPSHOT           = "snapshot";
+    private static final String STATE_HOURLY             = "hourly";
+    private static final String STATE_TEMPERATURE_UNIT   = "temperature_unit";
+
+    // Two days of hourly forecasts fill a screen; more are shown as the list nears its end.
+    private static final int FORECAST_WINDOW_SIZE     = 16;
+    private static final int FORECAST_WINDOW_PREFETCH = 4;
+
+    // The daily forecasts cover a week.
+    private static final int DAILY_FORECAST_COUNT = 7;
 
     @Bind(R.id.swipe_refresh_container)
     SwipeRefreshLayout mSwipeRefreshLayout;
@@ -64,14 +83,22 @@ public class WeatherFragment extends Fragment {
     RecyclerView       mForecastRecyclerView;
     @Bind(R.id.attribution)
     TextView           mAttributionTextView;
+    @Bind(R.id.forecast_mode)
+    TextView           mForecastModeTextView;
 
     private WeatherForecastListAdapter mAdapter;
     private CompositeSubscription mCompositeSubscription;
+    private SerialSubscription mWeatherSubscription;
+    private WeatherStateFragment mState;
+    private ViewHolderPrecreator mViewHolderPrecreator;
 
     @Override
     public View onCreateView(final LayoutInflater inflater, final ViewGroup container,
                              final Bundle savedInstanceState) {
         mCompositeSubscription = new CompositeSubscription();
+        mWeatherSubscription = new SerialSubscription();
+        mCompositeSubscription.add(mWeatherSubscription);
+        mState = WeatherStateFragment.attach(getFragmentManager());
         final View rootView = inflater.inflate(R.layout.fragment_weather, container, false);
         ButterKnife.bind(this, rootView);
 
@@ -80,12 +107,75 @@ public class WeatherFragment extends Fragment {
         mForecastRecyclerView.addItemDecoration(new DividerItemDecoration(WeatherApplication.get(),
                                                                           DividerItemDecoration.VERTICAL_LIST));
         mForecastRecyclerView.setHasFixedSize(true);
-        final RecyclerView.LayoutManager layoutManager = new LinearLayoutManager(WeatherApplication.get());
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(WeatherApplication.get());
         mForecastRecyclerView.setLayoutManager(layoutManager);
         mForecastRecyclerView.setAdapter(mAdapter);
+        mForecastRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(final RecyclerView recyclerView, final int dx, final int dy) {
+                final int remainingItems = mAdapter.getItemCount() - 1
+                                           - layoutManager.findLastVisibleItemPosition();
+                if (remainingItems <= FORECAST_WINDOW_PREFETCH) {
+
+                    // The adapter may not change while the list is scrolling.
+                    recyclerView.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            mAdapter.showMoreForecasts();
+                        }
+                    });
+                }
+            }
+        });
+
+        mForecastModeTextView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(final View view) {
+                toggleForecastMode();
+            }
+        });
 
         mAttributionTextView.setVisibility(View.INVISIBLE);
 
+        // After the process was killed, show what we showed before it was.
+        if (!mState.hasFetched() && savedInstanceState != null) {
+            final ParcelableWeatherSnapshot savedSnapshot =
+                    savedInstanceState.getParcelable(STATE_SNAPSHOT);
+            if (savedSnapshot != null) {
+                mState.setShownSnapshot(savedSnapshot.getSnapshot());
+            }
+            mState.setShowingHourlyForecasts(savedInstanceState.getBoolean(STATE_HOURLY));
+            final String temperatureUnit = savedInstanceState.getString(STATE_TEMPERATURE_UNIT);
+            if (temperatureUnit != null) {
+                mState.setTemperatureUnit(TemperatureFormatter.Unit.valueOf(temperatureUnit));
+            }
+        }
+
+        mForecastModeTextView.setText(mState.isShowingHourlyForecasts()
+                                      ? R.string.forecast_mode_daily
+                                      : R.string.forecast_mode_hourly);
+
+        // Show the weather we showed before our views were recreated, or else the last weather
+        // we fetched, while we fetch the current weather.
+        WeatherSnapshot lastSnapshot = mState.getShownSnapshot();
+        if (lastSnapshot == null) {
+            lastSnapshot = WeatherApplication.get().getWeatherSnapshotStore().read();
+        }
+        if (lastSnapshot != null) {
+            mAdapter.showSnapshot(lastSnapshot);
+            mAttributionTextView.setVisibility(View.VISIBLE);
+        }
+
+        // With nothing to show yet, get the rows of the first screen ready while we fetch.
+        mViewHolderPrecreator = new ViewHolderPrecreator(mForecastRecyclerView, mAdapter);
+        if (mAdapter.getItemCount() == 0) {
+            mViewHolderPrecreator.precreate(WEATHER_HEADER, 1);
+            mViewHolderPrecreator.precreate(WEATHER_ITEM, mState.isShowingHourlyForecasts()
+                                                          ? FORECAST_WINDOW_SIZE
+                                                          : DAILY_FORECAST_COUNT);
+            mViewHolderPrecreator.start();
+        }
+
         // Set up swipe refresh layout.
         mSwipeRefreshLayout.setColorSchemeResources(R.color.brand_main,
                                                     android.R.color.black,
@@ -98,43 +188,226 @@ public class WeatherFragment extends Fragment {
             }
         });
 
-        updateWeather();
+        EventBus.getDefault().register(this);
+
+        // A rotation picks up the fetch in progress, or else just shows what we already hold.
+        final Observable<WeatherSnapshot> fetch = mState.getFetch();
+        if (fetch != null) {
+            showFetch(fetch);
+        } else if (!mState.hasFetched()) {
+            updateWeather();
+        }
 
         return rootView;
     }
 
+    @Override
+    public void onSaveInstanceState(final Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // Our views may never have been created, e.g. while on the back stack.
+        if (mAdapter != null) {
+            outState.putParcelable(STATE_SNAPSHOT,
+                                   new ParcelableWeatherSnapshot(mAdapter.getSnapshot()));
+            outState.putBoolean(STATE_HOURLY, mState.isShowingHourlyForecasts());
+            outState.putString(STATE_TEMPERATURE_UNIT, mState.getTemperatureUnit().name());
+        }
+    }
+
     @Override
     public void onDestroyView() {
+        mState.setShownSnapshot(mAdapter.getSnapshot());
+        mViewHolderPrecreator.stop();
+        EventBus.getDefault().unregister(this);
         mCompositeSubscription.unsubscribe();
         super.onDestroyView();
         ButterKnife.unbind(this);
     }
 
+    /**
+     * Show weather refreshed in the background. Only posted when it differs from what we showed.
+     */
+    public void onEventMainThread(final WeatherUpdatedEvent event) {
+        // Background refreshes only fetch daily forecasts.
+        if (!mState.isShowingHourlyForecasts()) {
+            mAdapter.updateSnapshot(event.getSnapshot());
+            mAttributionTextView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * Switch between daily and hourly forecasts. Both come from what we already hold where
+     * possible, as hourly forecasts carry the daily forecasts derived from them, and are then
+     * refreshed.
+     */
+    private void toggleForecastMode() {
+        final boolean isHourly = !mState.isShowingHourlyForecasts();
+        mState.setShowingHourlyForecasts(isHourly);
+        mForecastModeTextView.setText(isHourly
+                                      ? R.string.forecast_mode_daily
+                                      : R.string.forecast_mode_hourly);
+
+        final WeatherSnapshot shownSnapshot = mAdapter.getSnapshot();
+        final WeatherSnapshot lastHourlySnapshot = mState.getLastHourlySnapshot();
+        if (isHourly && lastHourlySnapshot != null) {
+            mAdapter.showSnapshot(lastHourlySnapshot);
+        } else if (!isHourly && shownSnapshot.isHourly()) {
+            mAdapter.showSnapshot(shownSnapshot.toDaily());
+        }
+
+        updateWeather();
+    }
+
+    /**
+     * Switch the temperatures shown between degrees Celsius and Fahrenheit.
+     */
+    private void toggleTemperatureUnit() {
+        mState.setTemperatureUnit(mState.getTemperatureUnit() == TemperatureFormatter.Unit.CELSIUS
+                                  ? TemperatureFormatter.Unit.FAHRENHEIT
+                                  : TemperatureFormatter.Unit.CELSIUS);
+        mAdapter.showTemperatureUnit(mState.getTemperatureUnit());
+    }
+
     /**
      * Provides items for our list view.
      */
-    public class WeatherForecastListAdapter extends RecyclerView.Adapter<WeatherForecastListAdapter.ViewHolder> {
+    public class WeatherForecastListAdapter
+            extends RecyclerView.Adapter<WeatherForecastListAdapter.ViewHolder>
+            implements WeatherSnapshotDiff.Callback {
+
+        private WeatherRows     mRows;
+        private long            mSnapshotShownAt;
+        private long            mBindStartTime;
+        private int             mVisibleForecastCount;
+        private final WeatherRowMapper mRowMapper;
 
-        private List<WeatherForecast> mWeatherForecasts;
-        private CurrentWeather        mCurrentWeather;
+        // The update being worked out in the background, replaced by each newer one.
+        private final SerialSubscription mPendingUpdate = new SerialSubscription();
 
         public WeatherForecastListAdapter() {
-            this.mWeatherForecasts = new ArrayList<WeatherForecast>();
+            mCompositeSubscription.add(mPendingUpdate);
+            this.mRowMapper = new WeatherRowMapper(getActivity());
+            this.mRows = mRowMapper.map(new WeatherSnapshot(null, new ForecastSeries(null, 0)),
+                                        mState.getTemperatureUnit(),
+                                        System.currentTimeMillis());
         }
 
-        public void updateData(List<WeatherForecast> forecasts) {
-            mWeatherForecasts = forecasts;
-            notifyDataSetChanged();
+        public WeatherSnapshot getSnapshot() {
+            return mRows.getSnapshot();
         }
 
-        public void updateCurrentWeather(CurrentWeather currentWeather) {
-            mCurrentWeather = currentWeather;
+        /**
+         * Show a snapshot straight away, rebinding every row. Any update still being worked out
+         * is dropped, as it is older.
+         */
+        public void showSnapshot(final WeatherSnapshot snapshot) {
+            mPendingUpdate.set(Subscriptions.empty());
+            final long now = System.currentTimeMillis();
+            mRows = mRowMapper.map(snapshot, mState.getTemperatureUnit(), now);
+            mVisibleForecastCount = Math.min(mRows.getForecastCount(), FORECAST_WINDOW_SIZE);
+            mSnapshotShownAt = now;
             notifyDataSetChanged();
         }
 
+        /**
+         * Show the temperatures of the rows we hold in another unit.
+         */
+        public void showTemperatureUnit(final TemperatureFormatter.Unit unit) {
+            mRows = mRowMapper.map(mRows.getSnapshot(), unit, mSnapshotShownAt);
+            notifyItemRangeChanged(0, getItemCount());
+        }
+
+        /**
+         * Add the next window of forecasts to the end of the list, if there are any left.
+         */
+        public void showMoreForecasts() {
+            final int start = mVisibleForecastCount;
+            if (start >= mRows.getForecastCount()) {
+                return;
+            }
+
+            mVisibleForecastCount = Math.min(mRows.getForecastCount(),
+                                             start + FORECAST_WINDOW_SIZE);
+            notifyItemRangeInserted(getHeaderCount() + start, mVisibleForecastCount - start);
+        }
+
+        /**
+         * Show a new snapshot. Its rows and the list updates it requires are worked out on a
+         * background thread, and only the rows that changed are rebound. An update still being
+         * worked out is cancelled, so that an older snapshot can never be shown over a newer one.
+         */
+        public void updateSnapshot(final WeatherSnapshot snapshot) {
+            final WeatherSnapshot baseSnapshot = mRows.getSnapshot();
+
+            // Daily and hourly forecasts have nothing in common to diff.
+            if (snapshot.isHourly() != baseSnapshot.isHourly()) {
+                showSnapshot(snapshot);
+                return;
+            }
+
+            final TemperatureFormatter.Unit unit = mState.getTemperatureUnit();
+            final long now = System.currentTimeMillis();
+            final boolean isRelabelling = !mRowMapper.isToday(mSnapshotShownAt, now);
+
+            mPendingUpdate.set(Observable
+                    .defer(new Func0<Observable<RowsUpdate>>() {
+                        @Override
+                        public Observable<RowsUpdate> call() {
+                            return Observable.just(new RowsUpdate(
+                                    mRowMapper.map(snapshot, unit, now),
+                                    WeatherSnapshotDiff.compute(baseSnapshot, snapshot,
+                                                                isRelabelling)));
+                        }
+                    })
+                    .subscribeOn(Schedulers.computation())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(new Action1<RowsUpdate>() {
+                        @Override
+                        public void call(final RowsUpdate update) {
+                            applyRows(update.mRows, baseSnapshot, update.mDiff, now);
+                        }
+                    }));
+        }
+
+        private void applyRows(final WeatherRows newRows,
+                               final WeatherSnapshot baseSnapshot,
+                               final WeatherSnapshotDiff diff,
+                               final long now) {
+            final WeatherSnapshot snapshot = newRows.getSnapshot();
+
+            // The forecasts were switched while we were diffing, so this snapshot is out of date.
+            if (snapshot.isHourly() != mRows.getSnapshot().isHourly()) {
+                return;
+            }
+
+            // Another snapshot was shown while we were diffing, so our diff no longer applies.
+            final boolean isDiffStale = mRows.getSnapshot() != baseSnapshot;
+
+            // The diff covers whole series, so it only applies if the list shows all of them.
+            final int forecastCount = newRows.getForecastCount();
+            final int visibleForecastCount = Math.min(forecastCount,
+                    Math.max(mVisibleForecastCount, FORECAST_WINDOW_SIZE));
+            final boolean isWindowed = mVisibleForecastCount < mRows.getForecastCount()
+                                       || visibleForecastCount < forecastCount;
+
+            // The unit was switched while we were mapping, which is rare enough to redo here.
+            mRows = newRows.getUnit() == mState.getTemperatureUnit()
+                    ? newRows
+                    : mRowMapper.map(snapshot, mState.getTemperatureUnit(), now);
+            mVisibleForecastCount = visibleForecastCount;
+            mSnapshotShownAt = now;
+
+            if (isDiffStale || isWindowed) {
+                mBindStartTime = WeatherMetrics.startTimer();
+                notifyDataSetChanged();
+            } else if (!diff.isEmpty()) {
+                mBindStartTime = WeatherMetrics.startTimer();
+                diff.dispatchTo(this);
+            }
+        }
+
         @Override
         public int getItemViewType(int position) {
-            if (mCurrentWeather != null && position == 0) {
+            if (mRows.getHeader() != null && position == 0) {
                 return WEATHER_HEADER;
             } else {
                 return WEATHER_ITEM;
@@ -162,17 +435,29 @@ public class WeatherFragment extends Fragment {
         @Override
         public void onBindViewHolder(ViewHolder viewHolder, int i) {
             viewHolder.configure(i);
+
+            if (mBindStartTime != 0) {
+                WeatherApplication.get().getWeatherMetrics()
+                                  .stopTimer(WeatherMetrics.Stage.FIRST_BIND, mBindStartTime);
+                mBindStartTime = 0;
+            }
         }
 
         @Override
         public int getItemCount() {
-            return mWeatherForecasts.size() + (mCurrentWeather != null ? 1 : 0);
+            return mVisibleForecastCount + getHeaderCount();
+        }
+
+        private int getHeaderCount() {
+            return mRows.getHeader() != null ? 1 : 0;
         }
 
         public class ItemViewHolder extends ViewHolder {
 
             @Bind(R.id.day)
             TextView dayTextView;
+            @Bind(R.id.condition_icon)
+            WeatherIconView conditionIconView;
             @Bind(R.id.description)
             TextView descriptionTextView;
             @Bind(R.id.maximum_temperature)
@@ -187,15 +472,13 @@ public class WeatherFragment extends Fragment {
 
             @Override
             public void configure(int position) {
-                final WeatherForecast weatherForecast = mWeatherForecasts.get(position - (mCurrentWeather != null ? 1 : 0));
-                final DayFormatter dayFormatter = new DayFormatter(getActivity());
-                final String day = dayFormatter.format(weatherForecast.getTimestamp());
-                dayTextView.setText(day);
-                descriptionTextView.setText(weatherForecast.getDescription());
-                maximumTemperatureTextView.setText(
-                        TemperatureFormatter.format(weatherForecast.getMaximumTemperature()));
-                minimumTemperatureTextView.setText(
-                        TemperatureFormatter.format(weatherForecast.getMinimumTemperature()));
+                final WeatherRows.Forecast forecast =
+                        mRows.getForecast(position - getHeaderCount());
+                dayTextView.setText(forecast.getDay());
+                conditionIconView.setIconResource(forecast.getIconGlyph());
+                descriptionTextView.setText(forecast.getDescription());
+                maximumTemperatureTextView.setText(forecast.getMaximumTemperature());
+                minimumTemperatureTextView.setText(forecast.getMinimumTemperature());
             }
         }
 
@@ -203,19 +486,29 @@ public class WeatherFragment extends Fragment {
 
             @Bind(R.id.location_name)
             TextView locationName;
+            @Bind(R.id.current_condition_icon)
+            WeatherIconView currentConditionIcon;
             @Bind(R.id.current_temperature)
             TextView currentTemp;
 
             public HeaderViewHolder(View itemView) {
                 super(itemView);
                 ButterKnife.bind(this, itemView);
+
+                currentTemp.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(final View view) {
+                        toggleTemperatureUnit();
+                    }
+                });
             }
 
             @Override
             public void configure(int position) {
-                locationName.setText(mCurrentWeather.getLocationName());
-                currentTemp.setText(
-                        TemperatureFormatter.format(mCurrentWeather.getTemperature()));
+                final WeatherRows.Header header = mRows.getHeader();
+                locationName.setText(header.getLocationName());
+                currentConditionIcon.setIconResource(header.getIconGlyph());
+                currentTemp.setText(header.getTemperature());
             }
         }
 
@@ -229,108 +522,231 @@ public class WeatherFragment extends Fragment {
         }
     }
 
+    /**
+     * The rows of a snapshot and the list updates that show them, as worked out together.
+     */
+    private static class RowsUpdate {
+        final WeatherRows mRows;
+        final WeatherSnapshotDiff mDiff;
+
+        RowsUpdate(final WeatherRows rows, final WeatherSnapshotDiff diff) {
+            mRows = rows;
+            mDiff = diff;
+        }
+    }
+
     /**
      * Get weather data for the current location and update the UI.
      */
     private void updateWeather() {
         mSwipeRefreshLayout.setRefreshing(true);
 
-        final LocationManager locationManager = (LocationManager) getActivity()
-                .getSystemService(Context.LOCATION_SERVICE);
-        final LocationService locationService = new LocationService(locationManager);
-
-        // Get our current location.
-        final Observable<HashMap<String, WeatherForecast>> fetchDataObservable = locationService.getLocation()
-                                                                                                .timeout(
-                                                                                                        LOCATION_TIMEOUT_SECONDS,
-                                                                                                        TimeUnit.SECONDS)
-                                                                                                .flatMap(
-                                                                                                        new Func1<Location, Observable<HashMap<String, WeatherForecast>>>() {
-                                                                                                            @Override
-                                                                                                            public Observable<HashMap<String, WeatherForecast>> call(
-                                                                                                                    final Location location) {
-                                                                                                                final WeatherService weatherService = new WeatherService();
-                                                                                                                final double longitude = location.getLongitude();
-                                                                                                                final double latitude = location.getLatitude();
-
-                                                                                                                return Observable.zip(
-                                                                                                                        // Fetch current and 7 day forecasts for the location.
-                                                                                                                        weatherService.fetchCurrentWeather(
-                                                                                                                                longitude,
-                                                                                                                                latitude),
-                                                                                                                        weatherService.fetchWeatherForecasts(
-                                                                                                                                longitude,
-                                                                                                                                latitude),
-
-                                                                                                                        // Only handle the fetched results when both sets are available.
-                                                                                                                        new Func2<CurrentWeather, List<WeatherForecast>,
-                                                                                                                                HashMap<String, WeatherForecast>>() {
-                                                                                                                            @Override
-                                                                                                                            public HashMap call(
-                                                                                                                                    final CurrentWeather currentWeather,
-                                                                                                                                    final List<WeatherForecast> weatherForecasts) {
-
-                                                                                                                                HashMap<String, Object> weatherData = new HashMap<String, Object>();
-                                                                                                                                weatherData.put(
-                                                                                                                                        KEY_CURRENT_WEATHER,
-                                                                                                                                        currentWeather);
-                                                                                                                                weatherData.put(
-                                                                                                                                        KEY_WEATHER_FORECASTS,
-                                                                                                                                        weatherForecasts);
-                                                                                                                                return weatherData;
-                                                                                                                            }
-                                                                                                                        }
-                                                                                                                                     );
-                                                                                                            }
-                                                                                                        });
-
-        mCompositeSubscription.add(fetchDataObservable
-                                           .subscribeOn(Schedulers.newThread())
-                                           .observeOn(AndroidSchedulers.mainThread())
-                                           .subscribe(new Subscriber<HashMap<String, WeatherForecast>>() {
-                                               @Override
-                                               public void onNext(final HashMap<String, WeatherForecast> weatherData) {
-
-                                                   // Update UI with current weather.
-                                                   final CurrentWeather currentWeather = (CurrentWeather) weatherData
-                                                           .get(KEY_CURRENT_WEATHER);
-                                                   mAdapter.updateCurrentWeather(currentWeather);
-
-                                                   // Update weather forecast list.
-                                                   @SuppressWarnings("unchecked") final List<WeatherForecast> weatherForecasts = (List<WeatherForecast>)
-                                                           weatherData.get(KEY_WEATHER_FORECASTS);
-                                                   mAdapter.updateData(weatherForecasts);
-                                               }
-
-                                               @Override
-                                               public void onCompleted() {
-                                                   mSwipeRefreshLayout.setRefreshing(false);
-                                                   mAttributionTextView.setVisibility(View.VISIBLE);
-                                               }
-
-                                               @Override
-                                               public void onError(final Throwable error) {
-                                                   mSwipeRefreshLayout.setRefreshing(false);
-
-                                                   if (error instanceof TimeoutException) {
-                                                       Crouton.makeText(getActivity(),
-                                                                        R.string.error_location_unavailable,
-                                                                        Style.ALERT)
-                                                              .show();
-                                                   } else if (error instanceof RetrofitError
-                                                              || error instanceof HttpException) {
-                                                       Crouton.makeText(getActivity(),
-                                                                        R.string.error_fetch_weather,
-                                                                        Style.ALERT)
-                                                              .show();
-                                                   } else {
-                                                       Log.e(TAG, error.getMessage());
-                                                       error.printStackTrace();
-                                                       throw new RuntimeException(
-                                                               "See inner exception");
-                                                   }
-                                               }
-                                           })
-                                  );
+        final LocationService locationService = WeatherApplication.get().getLocationService();
+        final WeatherService weatherService = WeatherApplication.get().getWeatherService();
+        final WeatherMetrics metrics = WeatherApplication.get().getWeatherMetrics();
+        final boolean isHourly = mState.isShowingHourlyForecasts();
+        final WeatherSnapshot shownSnapshot = mAdapter.getSnapshot();
+
+        // Guess that we have not moved since the last fix any provider knows about, and start
+        // fetching its weather while we wait for a fresh fix. The guess is kept if the fix falls
+        // in the same cell, and cancelled as soon as a fix shows that we have moved.
+        final Location lastKnownLocation = locationService.getLastKnownLocation();
+        final String speculativeCell;
+        final Observable<WeatherSnapshot> speculativeSnapshot;
+        final SerialSubscription speculation = new SerialSubscription();
+
+        if (lastKnownLocation != null) {
+            speculativeCell = weatherService.getLocationCell(lastKnownLocation.getLongitude(),
+                                                             lastKnownLocation.getLatitude());
+            final ConnectableObservable<WeatherSnapshot> snapshot =
+                    fetchSnapshot(weatherService, lastKnownLocation, speculativeCell, isHourly,
+                                  shownSnapshot).replay(1);
+            speculation.set(snapshot.connect());
+            speculativeSnapshot = snapshot;
+        } else {
+            speculativeCell = null;
+            speculativeSnapshot = null;
+            speculation.unsubscribe();
+        }
+
+        // Get our current location. A cached fix may arrive first and be refined later on.
+        final Observable<WeatherSnapshot> fetchDataObservable = locationService
+                .getLocation()
+                .takeUntil(Observable.timer(LOCATION_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .switchIfEmpty(Observable.<Location>error(new TimeoutException()))
+                .compose(metrics.<Location>timeFirstItem(WeatherMetrics.Stage.LOCATION,
+                                                         ENDPOINT_LOCATION))
+                .map(new Func1<Location, LocatedCell>() {
+                    @Override
+                    public LocatedCell call(final Location location) {
+                        return new LocatedCell(location, weatherService.getLocationCell(
+                                location.getLongitude(), location.getLatitude()));
+                    }
+                })
+
+                // A refined fix in the same cell would fetch the same weather.
+                .distinctUntilChanged(new Func1<LocatedCell, String>() {
+                    @Override
+                    public String call(final LocatedCell locatedCell) {
+                        return locatedCell.cell;
+                    }
+                })
+                .switchMap(new Func1<LocatedCell, Observable<WeatherSnapshot>>() {
+                    @Override
+                    public Observable<WeatherSnapshot> call(final LocatedCell locatedCell) {
+                        if (!speculation.isUnsubscribed()
+                                && locatedCell.cell.equals(speculativeCell)) {
+                            return speculativeSnapshot;
+                        }
+
+                        speculation.unsubscribe();
+                        return fetchSnapshot(weatherService, locatedCell.location,
+                                             locatedCell.cell, isHourly, shownSnapshot);
+                    }
+                })
+                .doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        speculation.unsubscribe();
+                    }
+                });
+
+        // Replaces any fetch still in progress, e.g. for the other kind of forecasts. The fetch
+        // is held outside this fragment, so that it survives our views being recreated.
+        showFetch(mState.startFetch(fetchDataObservable));
+    }
+
+    /**
+     * Show the snapshots a fetch delivers on the main thread, until our views are destroyed.
+     */
+    private void showFetch(final Observable<WeatherSnapshot> fetch) {
+        final WeatherMetrics metrics = WeatherApplication.get().getWeatherMetrics();
+        mSwipeRefreshLayout.setRefreshing(true);
+
+        mWeatherSubscription.set(fetch
+                .subscribe(new Subscriber<WeatherSnapshot>() {
+                    @Override
+                    public void onNext(final WeatherSnapshot snapshot) {
+                        mSwipeRefreshLayout.setRefreshing(false);
+                        mAdapter.updateSnapshot(snapshot);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        mState.finishFetch();
+                        mSwipeRefreshLayout.setRefreshing(false);
+                        mAttributionTextView.setVisibility(View.VISIBLE);
+                        metrics.report();
+                    }
+
+                    @Override
+                    public void onError(final Throwable fetchError) {
+                        mState.finishFetch();
+                        mSwipeRefreshLayout.setRefreshing(false);
+                        metrics.report();
+
+                        final int message = FetchErrorMessages.forError(fetchError);
+                        if (message != 0) {
+                            Crouton.makeText(getActivity(), message, Style.ALERT).show();
+                        } else {
+                            Log.e(TAG, fetchError.getMessage());
+                            fetchError.printStackTrace();
+                            throw new RuntimeException("See inner exception");
+                        }
+                    }
+                }));
+    }
+    /**
+     * Fetch the current weather and the forecasts shown in the given mode for a location.
+     * <p/>
+     * Each part is shown as soon as it arrives, on top of the snapshot we were showing, so the
+     * header does not wait for the slower forecasts. Each part also fails on its own: the other
+     * part still arrives, and the error is passed on after it. If we were showing another cell,
+     * or one we do not know, the parts start from an empty snapshot instead, so that one city's
+     * forecasts are never shown, or stored, under another's current weather.
+     */
+    private static Observable<WeatherSnapshot> fetchSnapshot(final WeatherService weatherService,
+                                                             final Location location,
+                                                             final String cell,
+                                                             final boolean isHourly,
+                                                             final WeatherSnapshot shownSnapshot) {
+        final double longitude = location.getLongitude();
+        final double latitude = location.getLatitude();
+        final WeatherSnapshot initialSnapshot = cell.equals(shownSnapshot.getLocationCell())
+                ? shownSnapshot
+                : new WeatherSnapshot(null, new ForecastSeries(null, 0)).withLocationCell(cell);
+
+        final Observable<Func1<WeatherSnapshot, WeatherSnapshot>> currentWeatherUpdate =
+                weatherService.fetchCurrentWeather(longitude, latitude)
+                        .map(new Func1<CurrentWeather, Func1<WeatherSnapshot, WeatherSnapshot>>() {
+                            @Override
+                            public Func1<WeatherSnapshot, WeatherSnapshot> call(
+                                    final CurrentWeather currentWeather) {
+                                return new Func1<WeatherSnapshot, WeatherSnapshot>() {
+                                    @Override
+                                    public WeatherSnapshot call(final WeatherSnapshot snapshot) {
+                                        return snapshot.withCurrentWeather(currentWeather);
+                                    }
+                                };
+                            }
+                        });
+
+        final Observable<Func1<WeatherSnapshot, WeatherSnapshot>> forecastsUpdate;
+        if (isHourly) {
+            forecastsUpdate = weatherService.fetchHourlyForecasts(longitude, latitude)
+                    .map(new Func1<HourlyForecast, Func1<WeatherSnapshot, WeatherSnapshot>>() {
+                        @Override
+                        public Func1<WeatherSnapshot, WeatherSnapshot> call(
+                                final HourlyForecast hourlyForecast) {
+                            return new Func1<WeatherSnapshot, WeatherSnapshot>() {
+                                @Override
+                                public WeatherSnapshot call(final WeatherSnapshot snapshot) {
+                                    return snapshot.withHourlyForecast(hourlyForecast);
+                                }
+                            };
+                        }
+                    });
+        } else {
+            forecastsUpdate = weatherService.fetchWeatherForecasts(longitude, latitude)
+                    .map(new Func1<ForecastSeries, Func1<WeatherSnapshot, WeatherSnapshot>>() {
+                        @Override
+                        public Func1<WeatherSnapshot, WeatherSnapshot> call(
+                                final ForecastSeries weatherForecasts) {
+                            return new Func1<WeatherSnapshot, WeatherSnapshot>() {
+                                @Override
+                                public WeatherSnapshot call(final WeatherSnapshot snapshot) {
+                                    return snapshot.withWeatherForecasts(weatherForecasts);
+                                }
+                            };
+                        }
+                    });
+        }
+
+        return Observable.mergeDelayError(currentWeatherUpdate, forecastsUpdate)
+                .scan(initialSnapshot,
+                      new Func2<WeatherSnapshot, Func1<WeatherSnapshot, WeatherSnapshot>,
+                              WeatherSnapshot>() {
+                          @Override
+                          public WeatherSnapshot call(
+                                  final WeatherSnapshot snapshot,
+                                  final Func1<WeatherSnapshot, WeatherSnapshot> update) {
+                              return update.call(snapshot);
+                          }
+                      })
+                // The initial snapshot holds nothing new.
+                .skip(1);
+    }
+
+    /**
+     * A location fix along with the cell it falls in.
+     */
+    private static class LocatedCell {
+        final Location location;
+        final String cell;
+
+        LocatedCell(final Location location, final String cell) {
+            this.location = location;
+            this.cell = cell;
+        }
     }
 }
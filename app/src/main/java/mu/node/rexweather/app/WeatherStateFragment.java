@@ -0,0 +1,176 @@
+package mu.node.rexweather.app;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import mu.node.rexweather.app.Helpers.TemperatureFormatter;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+import mu.node.rexweather.app.Services.RefreshScheduler;
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.observables.ConnectableObservable;
+
+/**
+ * Weather State Fragment.
+ * <p/>
+ * A headless fragment, retained across configuration changes, that holds what the Weather
+ * Fragment needs to outlive its views: the fetch in progress, the snapshot shown and the
+ * forecast mode. A rotation re-renders from here rather than fetching again, and a fetch
+ * started before it carries on and is handed to the new views.
+ * <p/>
+ * All state is read and written on the main thread.
+ */
+public class WeatherStateFragment extends Fragment {
+    private static final String TAG = WeatherStateFragment.class.getCanonicalName();
+
+    private Observable<WeatherSnapshot> mFetch;
+    private Subscription mFetchConnection;
+    private boolean mHasFetched;
+    private WeatherSnapshot mShownSnapshot;
+    private WeatherSnapshot mLastHourlySnapshot;
+    private boolean mIsShowingHourlyForecasts;
+    private TemperatureFormatter.Unit mTemperatureUnit = TemperatureFormatter.Unit.CELSIUS;
+
+    /**
+     * Find the state held for the activity, adding it the first time round.
+     */
+    public static WeatherStateFragment attach(final FragmentManager fragmentManager) {
+        WeatherStateFragment state = (WeatherStateFragment) fragmentManager
+                .findFragmentByTag(TAG);
+        if (state == null) {
+            state = new WeatherStateFragment();
+            fragmentManager.beginTransaction()
+                    .add(state, TAG)
+                    .commit();
+        }
+
+        return state;
+    }
+
+    @Override
+    public void onCreate(final Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    @Override
+    public void onDestroy() {
+        cancelFetch();
+        super.onDestroy();
+    }
+
+    /**
+     * Start a fetch that carries on whatever happens to the views. It replaces any fetch in
+     * progress. Its snapshots are delivered on the main thread, and the latest one is replayed
+     * to anyone subscribing later on.
+     */
+    public Observable<WeatherSnapshot> startFetch(final Observable<WeatherSnapshot> fetch) {
+        cancelFetch();
+
+        // A fetch shows each part of the weather as it arrives. Only the snapshot it ends with
+        // is kept, so that a part which failed is not stored as if it were fresh.
+        final WeatherSnapshot[] latestSnapshot = {null};
+
+        final ConnectableObservable<WeatherSnapshot> replayedFetch = fetch
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnNext(new Action1<WeatherSnapshot>() {
+                    @Override
+                    public void call(final WeatherSnapshot snapshot) {
+                        if (snapshot.isHourly()) {
+                            mLastHourlySnapshot = snapshot;
+                        }
+                        latestSnapshot[0] = snapshot;
+                    }
+                })
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        final WeatherSnapshot snapshot = latestSnapshot[0];
+                        if (snapshot == null) {
+                            return;
+                        }
+
+                        WeatherApplication.get().getWeatherSnapshotStore()
+                                          .writeInBackground(snapshot);
+                        final RefreshScheduler refreshScheduler =
+                                WeatherApplication.get().getRefreshScheduler();
+                        refreshScheduler.onSnapshotShown(snapshot.toDaily());
+
+                        // Only refresh in the background once the weather has been shown,
+                        // rather than in every process started, e.g. for a broadcast.
+                        refreshScheduler.start();
+                    }
+                })
+                .replay(1);
+
+        mFetch = replayedFetch;
+        mFetchConnection = replayedFetch.connect();
+        mHasFetched = true;
+        return mFetch;
+    }
+
+    /**
+     * The fetch in progress, or null if there is none. A fetch stays in progress until
+     * {@link #finishFetch()} is called, so that its outcome is delivered even if it arrived
+     * while there were no views.
+     */
+    public Observable<WeatherSnapshot> getFetch() {
+        return mFetch;
+    }
+
+    public void finishFetch() {
+        mFetch = null;
+    }
+
+    /**
+     * Whether weather has been fetched since the process started. If not, whatever we show
+     * came from a previous process and should be refreshed.
+     */
+    public boolean hasFetched() {
+        return mHasFetched;
+    }
+
+    public WeatherSnapshot getShownSnapshot() {
+        return mShownSnapshot;
+    }
+
+    public void setShownSnapshot(final WeatherSnapshot snapshot) {
+        mShownSnapshot = snapshot;
+        if (snapshot.isHourly()) {
+            mLastHourlySnapshot = snapshot;
+        }
+    }
+
+    public WeatherSnapshot getLastHourlySnapshot() {
+        return mLastHourlySnapshot;
+    }
+
+    public boolean isShowingHourlyForecasts() {
+        return mIsShowingHourlyForecasts;
+    }
+
+    public void setShowingHourlyForecasts(final boolean isShowingHourlyForecasts) {
+        mIsShowingHourlyForecasts = isShowingHourlyForecasts;
+    }
+
+    public TemperatureFormatter.Unit getTemperatureUnit() {
+        return mTemperatureUnit;
+    }
+
+    public void setTemperatureUnit(final TemperatureFormatter.Unit temperatureUnit) {
+        mTemperatureUnit = temperatureUnit;
+    }
+
+    private void cancelFetch() {
+        if (mFetchConnection != null) {
+            mFetchConnection.unsubscribe();
+            mFetchConnection = null;
+        }
+
+        mFetch = null;
+    }
+}
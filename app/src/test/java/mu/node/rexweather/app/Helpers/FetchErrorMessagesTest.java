@@ -0,0 +1,62 @@
+package mu.node.rexweather.app.Helpers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import mu.node.rexweather.app.R;
+import mu.node.rexweather.app.Services.Clock;
+import mu.node.rexweather.app.Services.ResiliencePolicy;
+import mu.node.rexweather.app.Services.WebServiceException;
+import rx.Observable;
+import rx.exceptions.CompositeException;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class FetchErrorMessagesTest {
+
+    @Test
+    public void reportsTheWebServiceTimingOutAsAFailedFetch() {
+        final TestScheduler scheduler = new TestScheduler();
+        final ResiliencePolicy resiliencePolicy = new ResiliencePolicy(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return scheduler.now();
+            }
+        }, scheduler, new Random(0));
+
+        final TestSubscriber<Object> subscriber = new TestSubscriber<>();
+        Observable.never()
+                .compose(resiliencePolicy.guard("test/weather", 8000))
+                .subscribe(subscriber);
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertEquals(R.string.error_fetch_weather,
+                FetchErrorMessages.forError(subscriber.getOnErrorEvents().get(0)));
+    }
+
+    @Test
+    public void reportsNoLocationFixAsTheLocationBeingUnavailable() {
+        assertEquals(R.string.error_location_unavailable,
+                FetchErrorMessages.forError(new TimeoutException()));
+    }
+
+    @Test
+    public void reportsTheFirstOfSeveralErrors() {
+        final CompositeException errors = new CompositeException(Arrays.asList(
+                new WebServiceException(503, "busy"), new TimeoutException()));
+
+        assertEquals(R.string.error_fetch_weather, FetchErrorMessages.forError(errors));
+    }
+
+    @Test
+    public void leavesUnexpectedErrorsUnexplained() {
+        assertEquals(0, FetchErrorMessages.forError(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,52 @@
+package mu.node.rexweather.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+
+/**
+ * Recorded web service responses, shipped as resources so that the benchmarks run offline.
+ */
+final class Fixtures {
+    static final String CURRENT_WEATHER = "current_weather.json";
+    static final String DAILY_FORECASTS = "forecast_daily.json";
+    static final String HOURLY_FORECASTS = "forecast_hourly.json";
+
+    private static final String MIME_TYPE = "application/json; charset=UTF-8";
+
+    private Fixtures() {
+    }
+
+    static byte[] load(final String name) {
+        final InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (input == null) {
+            throw new IllegalArgumentException("No fixture named " + name);
+        }
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int count; (count = input.read(buffer)) != -1; ) {
+                bytes.write(buffer, 0, count);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read fixture " + name, e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Wrap a fixture as a response body. The bytes are shared, not copied.
+     */
+    static TypedInput body(final byte[] fixture) {
+        return new TypedByteArray(MIME_TYPE, fixture);
+    }
+}
@@ -0,0 +1,58 @@
+package mu.node.rexweather.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Helpers.DayBucketFormatter;
+import mu.node.rexweather.app.Helpers.TemperatureFormatter;
+
+/**
+ * Formatting of a week's forecast rows, as done while binding the forecast list. DayFormatter
+ * only adds Android string resources to DayBucketFormatter, which is benchmarked in its place.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FormatterBenchmark {
+    private static final int DAYS = 7;
+
+    private DayBucketFormatter mDayFormatter;
+    private long mNow;
+    private final long[] mTimestamps = new long[DAYS];
+    private final float[] mTemperatures = new float[DAYS];
+
+    @Setup
+    public void setUp() {
+        mDayFormatter = new DayBucketFormatter("Today", "Tomorrow", Locale.US);
+        mNow = System.currentTimeMillis();
+
+        for (int i = 0; i < DAYS; i++) {
+            mTimestamps[i] = TimeUnit.MILLISECONDS.toSeconds(mNow) + TimeUnit.DAYS.toSeconds(i);
+            mTemperatures[i] = 14.6f + i * 1.3f;
+        }
+    }
+
+    @Benchmark
+    public void formatDays(final Blackhole blackhole) {
+        for (int i = 0; i < DAYS; i++) {
+            blackhole.consume(mDayFormatter.format(mTimestamps[i], mNow));
+        }
+    }
+
+    @Benchmark
+    public void formatTemperatures(final Blackhole blackhole) {
+        for (int i = 0; i < DAYS; i++) {
+            blackhole.consume(TemperatureFormatter.format(mTemperatures[i]));
+        }
+    }
+}
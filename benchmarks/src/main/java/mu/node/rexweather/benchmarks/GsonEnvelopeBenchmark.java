@@ -0,0 +1,143 @@
+package mu.node.rexweather.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherForecast;
+
+/**
+ * Baseline for {@link WeatherJsonConverterBenchmark}: reflective Gson parsing into data
+ * envelopes, followed by the step that mapped envelopes to models, as WeatherService did before
+ * it used WeatherJsonConverter. The envelopes are copies of the ones it used.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GsonEnvelopeBenchmark {
+    private Gson mGson;
+    private byte[] mCurrentWeather;
+    private byte[] mDailyForecasts;
+    private WeatherForecastListDataEnvelope mParsedDailyForecasts;
+
+    @Setup
+    public void setUp() throws IOException {
+        mGson = new Gson();
+        mCurrentWeather = Fixtures.load(Fixtures.CURRENT_WEATHER);
+        mDailyForecasts = Fixtures.load(Fixtures.DAILY_FORECASTS);
+        mParsedDailyForecasts = mGson.fromJson(reader(mDailyForecasts),
+                WeatherForecastListDataEnvelope.class);
+    }
+
+    @Benchmark
+    public Object parseCurrentWeather() throws IOException {
+        return mGson.fromJson(reader(mCurrentWeather), CurrentWeatherDataEnvelope.class);
+    }
+
+    @Benchmark
+    public Object parseDailyForecasts() throws IOException {
+        return mGson.fromJson(reader(mDailyForecasts), WeatherForecastListDataEnvelope.class);
+    }
+
+    /**
+     * The envelope to model mapping on its own.
+     */
+    @Benchmark
+    public Object mapDailyForecasts() {
+        return mapWeatherForecasts(mParsedDailyForecasts);
+    }
+
+    @Benchmark
+    public Object parseAndMapCurrentWeather() throws IOException {
+        final CurrentWeatherDataEnvelope data = mGson.fromJson(reader(mCurrentWeather),
+                CurrentWeatherDataEnvelope.class);
+        return new CurrentWeather(data.id, data.locationName, data.timestamp,
+                WeatherCondition.forCode(data.weather.get(0).id), data.main.temp,
+                data.main.temp_min, data.main.temp_max);
+    }
+
+    @Benchmark
+    public Object parseAndMapDailyForecasts() throws IOException {
+        return mapWeatherForecasts(mGson.fromJson(reader(mDailyForecasts),
+                WeatherForecastListDataEnvelope.class));
+    }
+
+    private static Reader reader(final byte[] fixture) throws IOException {
+        return new InputStreamReader(Fixtures.body(fixture).in(), "UTF-8");
+    }
+
+    private static List<WeatherForecast> mapWeatherForecasts(
+            final WeatherForecastListDataEnvelope listData) {
+        final ArrayList<WeatherForecast> weatherForecasts = new ArrayList<>();
+
+        for (WeatherForecastListDataEnvelope.ForecastDataEnvelope data : listData.list) {
+            weatherForecasts.add(new WeatherForecast(listData.city.name, data.timestamp,
+                    WeatherCondition.forCode(data.weather.get(0).id), data.temp.min,
+                    data.temp.max));
+        }
+
+        return weatherForecasts;
+    }
+
+    static class WeatherDataEnvelope {
+        @SerializedName("cod")
+        int httpCode;
+
+        static class Weather {
+            int id;
+        }
+    }
+
+    static class CurrentWeatherDataEnvelope extends WeatherDataEnvelope {
+        int id;
+        @SerializedName("name")
+        String locationName;
+        @SerializedName("dt")
+        long timestamp;
+        ArrayList<Weather> weather;
+        Main main;
+
+        static class Main {
+            float temp;
+            float temp_min;
+            float temp_max;
+        }
+    }
+
+    static class WeatherForecastListDataEnvelope extends WeatherDataEnvelope {
+        Location city;
+        ArrayList<ForecastDataEnvelope> list;
+
+        static class Location {
+            String name;
+        }
+
+        static class ForecastDataEnvelope {
+            @SerializedName("dt")
+            long timestamp;
+            Temperature temp;
+            ArrayList<Weather> weather;
+        }
+
+        static class Temperature {
+            float min;
+            float max;
+        }
+    }
+}
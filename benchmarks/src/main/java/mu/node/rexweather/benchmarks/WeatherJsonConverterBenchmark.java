@@ -0,0 +1,56 @@
+package mu.node.rexweather.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Services.WeatherJsonConverter;
+import retrofit.converter.ConversionException;
+
+/**
+ * Parsing of recorded responses into our models by the streaming converter, from bytes to the
+ * finished model. Compare with {@link GsonEnvelopeBenchmark}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WeatherJsonConverterBenchmark {
+    private WeatherJsonConverter mConverter;
+    private byte[] mCurrentWeather;
+    private byte[] mDailyForecasts;
+    private byte[] mHourlyForecasts;
+
+    @Setup
+    public void setUp() {
+        mConverter = new WeatherJsonConverter();
+        mCurrentWeather = Fixtures.load(Fixtures.CURRENT_WEATHER);
+        mDailyForecasts = Fixtures.load(Fixtures.DAILY_FORECASTS);
+        mHourlyForecasts = Fixtures.load(Fixtures.HOURLY_FORECASTS);
+    }
+
+    @Benchmark
+    public Object currentWeather() throws ConversionException {
+        return mConverter.fromBody(Fixtures.body(mCurrentWeather), CurrentWeather.class);
+    }
+
+    @Benchmark
+    public Object dailyForecasts() throws ConversionException {
+        return mConverter.fromBody(Fixtures.body(mDailyForecasts), ForecastSeries.class);
+    }
+
+    /**
+     * Includes deriving the daily forecasts from the hourly ones.
+     */
+    @Benchmark
+    public Object hourlyForecasts() throws ConversionException {
+        return mConverter.fromBody(Fixtures.body(mHourlyForecasts), HourlyForecast.class);
+    }
+}
@@ -0,0 +1,60 @@
+package mu.node.rexweather.app.Bulk;
+
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * The weather fetched for one coordinate of a bulk run, or why it could not be fetched.
+ */
+public class BulkResult {
+    private final Coordinate mCoordinate;
+    private final WeatherSnapshot mSnapshot;
+    private final Throwable mError;
+    private final long mLatencyMilliseconds;
+
+    private BulkResult(final Coordinate coordinate, final WeatherSnapshot snapshot,
+                       final Throwable error, final long latencyMilliseconds) {
+        mCoordinate = coordinate;
+        mSnapshot = snapshot;
+        mError = error;
+        mLatencyMilliseconds = latencyMilliseconds;
+    }
+
+    public static BulkResult success(final Coordinate coordinate, final WeatherSnapshot snapshot,
+                                     final long latencyMilliseconds) {
+        return new BulkResult(coordinate, snapshot, null, latencyMilliseconds);
+    }
+
+    public static BulkResult failure(final Coordinate coordinate, final Throwable error,
+                                     final long latencyMilliseconds) {
+        return new BulkResult(coordinate, null, error, latencyMilliseconds);
+    }
+
+    public Coordinate getCoordinate() {
+        return mCoordinate;
+    }
+
+    public boolean isSuccess() {
+        return mError == null;
+    }
+
+    /**
+     * The fetched weather, or null if the fetch failed.
+     */
+    public WeatherSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Why the fetch failed, or null if it succeeded.
+     */
+    public Throwable getError() {
+        return mError;
+    }
+
+    /**
+     * How long the fetch took, not counting any wait for the rate limiter.
+     */
+    public long getLatencyMilliseconds() {
+        return mLatencyMilliseconds;
+    }
+}
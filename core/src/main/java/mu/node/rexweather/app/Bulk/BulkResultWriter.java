@@ -0,0 +1,73 @@
+package mu.node.rexweather.app.Bulk;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * Writes bulk results as they arrive, one JSON object per line, so that a run can be followed
+ * and its output consumed while it is still going.
+ */
+public class BulkResultWriter implements Closeable {
+    private final Writer mWriter;
+
+    public BulkResultWriter(final Writer writer) {
+        mWriter = writer;
+    }
+
+    public synchronized void write(final BulkResult result) throws IOException {
+        final JsonWriter json = new JsonWriter(mWriter);
+        final Coordinate coordinate = result.getCoordinate();
+
+        json.beginObject();
+        json.name("lat").value(coordinate.getLatitude());
+        json.name("lon").value(coordinate.getLongitude());
+
+        if (result.isSuccess()) {
+            writeSnapshot(json, result.getSnapshot());
+        } else {
+            json.name("error").value(String.valueOf(result.getError()));
+        }
+
+        json.endObject();
+        json.flush();
+        mWriter.write('\n');
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+
+    private static void writeSnapshot(final JsonWriter json, final WeatherSnapshot snapshot)
+            throws IOException {
+        final CurrentWeather currentWeather = snapshot.getCurrentWeather();
+        if (currentWeather != null) {
+            json.name("name").value(currentWeather.getLocationName());
+            json.name("dt").value(currentWeather.getTimestamp());
+            json.name("condition").value(currentWeather.getCondition().getCode());
+            json.name("description").value(currentWeather.getDescription());
+            json.name("temp").value(currentWeather.getTemperature());
+        }
+
+        final ForecastSeries forecasts = snapshot.getWeatherForecasts();
+        json.name("forecasts").beginArray();
+        for (int i = 0; i < forecasts.size(); i++) {
+            json.beginObject();
+            json.name("dt").value(forecasts.getTimestamp(i));
+            json.name("condition").value(forecasts.getConditionCode(i));
+            json.name("description").value(forecasts.getDescription(i));
+            json.name("min").value(forecasts.getMinimumTemperature(i));
+            json.name("max").value(forecasts.getMaximumTemperature(i));
+            json.endObject();
+        }
+        json.endArray();
+    }
+}
@@ -0,0 +1,68 @@
+package mu.node.rexweather.app.Bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mu.node.rexweather.app.Metrics.LatencyHistogram;
+
+/**
+ * Throughput and latency of a bulk run so far.
+ */
+public class BulkStats {
+    private final long mStartTime = System.nanoTime();
+    private final AtomicLong mSuccessCount = new AtomicLong();
+    private final AtomicLong mFailureCount = new AtomicLong();
+    private final AtomicLong mSkippedCount = new AtomicLong();
+    private final LatencyHistogram mLatencies = new LatencyHistogram();
+
+    public void record(final BulkResult result) {
+        if (result.isSuccess()) {
+            mSuccessCount.incrementAndGet();
+        } else {
+            mFailureCount.incrementAndGet();
+        }
+
+        mLatencies.record(result.getLatencyMilliseconds());
+    }
+
+    /**
+     * Count an input line that was skipped because it held no valid coordinate.
+     */
+    public void recordSkipped() {
+        mSkippedCount.incrementAndGet();
+    }
+
+    public long getSuccessCount() {
+        return mSuccessCount.get();
+    }
+
+    public long getFailureCount() {
+        return mFailureCount.get();
+    }
+
+    public long getSkippedCount() {
+        return mSkippedCount.get();
+    }
+
+    public long getCount() {
+        return getSuccessCount() + getFailureCount();
+    }
+
+    /**
+     * Locations completed per second since the run started.
+     */
+    public double getThroughput() {
+        final long elapsed = System.nanoTime() - mStartTime;
+        return elapsed == 0 ? 0 : getCount() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public LatencyHistogram.Snapshot getLatencies() {
+        return mLatencies.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d done (%d failed, %d skipped), %.1f/s, latency %s", getCount(),
+                getFailureCount(), getSkippedCount(), getThroughput(), getLatencies());
+    }
+}
@@ -0,0 +1,80 @@
+package mu.node.rexweather.app.Bulk;
+
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+import mu.node.rexweather.app.Services.RateLimiter;
+import mu.node.rexweather.app.Services.WeatherService;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+/**
+ * Fetches the weather for a stream of coordinates, e.g. to warm caches or precompute forecasts
+ * for many locations at once.
+ * <p/>
+ * At most a fixed number of locations are fetched at a time. Its requests are made at bulk
+ * priority, so that the weather service's rate limiter lets any other requests go first.
+ * Coordinates are pulled from the stream only as fetches
+ * finish, so it may be much larger than memory. Results are emitted as they arrive, in no
+ * particular order, and a failed location does not stop the run.
+ */
+public class BulkWeatherEngine {
+    private final WeatherService mWeatherService;
+    private final int mMaximumConcurrency;
+
+    public BulkWeatherEngine(final WeatherService weatherService,
+                             final int maximumConcurrency) {
+        mWeatherService = weatherService;
+        mMaximumConcurrency = maximumConcurrency;
+    }
+
+    public Observable<BulkResult> fetch(final Observable<Coordinate> coordinates) {
+        return Observable.merge(coordinates.map(new Func1<Coordinate, Observable<BulkResult>>() {
+            @Override
+            public Observable<BulkResult> call(final Coordinate coordinate) {
+                return fetch(coordinate);
+            }
+        }), mMaximumConcurrency);
+    }
+
+    private Observable<BulkResult> fetch(final Coordinate coordinate) {
+        return Observable.defer(new Func0<Observable<BulkResult>>() {
+            @Override
+            public Observable<BulkResult> call() {
+                final long startTime = System.nanoTime();
+                final double longitude = coordinate.getLongitude();
+                final double latitude = coordinate.getLatitude();
+
+                return Observable.zip(
+                        mWeatherService.fetchCurrentWeather(longitude, latitude,
+                                RateLimiter.Priority.BULK),
+                        mWeatherService.fetchWeatherForecasts(longitude, latitude,
+                                RateLimiter.Priority.BULK),
+                        new Func2<CurrentWeather, ForecastSeries, BulkResult>() {
+                            @Override
+                            public BulkResult call(final CurrentWeather currentWeather,
+                                                   final ForecastSeries weatherForecasts) {
+                                return BulkResult.success(coordinate,
+                                        new WeatherSnapshot(currentWeather, weatherForecasts),
+                                        elapsedMilliseconds(startTime));
+                            }
+                        })
+                        .onErrorReturn(new Func1<Throwable, BulkResult>() {
+                            @Override
+                            public BulkResult call(final Throwable error) {
+                                return BulkResult.failure(coordinate, error,
+                                        elapsedMilliseconds(startTime));
+                            }
+                        });
+            }
+        });
+    }
+
+    private static long elapsedMilliseconds(final long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+}
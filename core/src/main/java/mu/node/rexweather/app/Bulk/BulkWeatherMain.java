@@ -0,0 +1,133 @@
+package mu.node.rexweather.app.Bulk;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+
+import mu.node.rexweather.app.Metrics.PrintStreamMetricsReporter;
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Services.Clock;
+import mu.node.rexweather.app.Services.HedgingPolicy;
+import mu.node.rexweather.app.Services.NetworkStack;
+import mu.node.rexweather.app.Services.OpenWeatherMapProvider;
+import mu.node.rexweather.app.Services.RateLimiter;
+import mu.node.rexweather.app.Services.ResiliencePolicy;
+import mu.node.rexweather.app.Services.WeatherMemoryCache;
+import mu.node.rexweather.app.Services.WeatherService;
+import retrofit.RestAdapter;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Command line entry point for bulk runs:
+ * <pre>
+ * BulkWeatherMain &lt;input&gt; &lt;output&gt; [--concurrency N] [--rate N] [--endpoint URL]
+ *                 [--secondary URL]
+ * </pre>
+ * The input holds one "latitude,longitude" pair per line, and the output receives one JSON
+ * object per line. Either may be "-" for the standard streams. Invalid input lines are skipped
+ * with a warning. Progress, warnings and statistics are written to standard error. The rate is
+ * in calls per second to the first endpoint, and each location takes two calls. Given a
+ * secondary endpoint, slow requests to the first are hedged with requests to the secondary.
+ */
+public class BulkWeatherMain {
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final double DEFAULT_RATE_PER_SECOND = 20;
+    private static final int PROGRESS_INTERVAL = 100;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BulkWeatherMain <input> <output> [--concurrency N]"
+                    + " [--rate N] [--endpoint URL] [--secondary URL]");
+            System.exit(1);
+        }
+
+        int concurrency = DEFAULT_CONCURRENCY;
+        double ratePerSecond = DEFAULT_RATE_PER_SECOND;
+        String endpoint = OpenWeatherMapProvider.WEB_SERVICE_BASE_URL;
+        String secondaryEndpoint = null;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--rate":
+                    ratePerSecond = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--endpoint":
+                    endpoint = args[i + 1];
+                    break;
+                case "--secondary":
+                    secondaryEndpoint = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        final WeatherMetrics metrics = new WeatherMetrics();
+        metrics.setReporter(new PrintStreamMetricsReporter(System.err));
+
+        // Each location makes up to two calls at a time, or four while they are hedged, all of
+        // which may wait for a permit.
+        final int callsPerLocation = secondaryEndpoint != null ? 4 : 2;
+        final RateLimiter rateLimiter = new RateLimiter(ratePerSecond, concurrency,
+                callsPerLocation * concurrency, Clock.MONOTONIC, Schedulers.computation(),
+                metrics);
+        final NetworkStack networkStack = new NetworkStack(
+                new File(System.getProperty("java.io.tmpdir"), "rexweather-bulk"), metrics,
+                concurrency, rateLimiter);
+        final OpenWeatherMapProvider primary = new OpenWeatherMapProvider("primary", endpoint,
+                networkStack, metrics);
+        primary.setLogLevel(RestAdapter.LogLevel.NONE);
+        OpenWeatherMapProvider secondary = null;
+        if (secondaryEndpoint != null) {
+            secondary = new OpenWeatherMapProvider("secondary", secondaryEndpoint, networkStack,
+                    metrics);
+            secondary.setLogLevel(RestAdapter.LogLevel.NONE);
+        }
+
+        final WeatherService weatherService = new WeatherService(primary, secondary,
+                new WeatherMemoryCache(), metrics, new ResiliencePolicy(), new HedgingPolicy(),
+                rateLimiter);
+
+        final BulkWeatherEngine engine = new BulkWeatherEngine(weatherService, concurrency);
+        final BulkStats stats = new BulkStats();
+
+        final BufferedReader input = new BufferedReader(new InputStreamReader(
+                "-".equals(args[0]) ? System.in : new FileInputStream(args[0]), "UTF-8"));
+        final BulkResultWriter output = new BulkResultWriter(new OutputStreamWriter(
+                "-".equals(args[1]) ? System.out : new FileOutputStream(args[1]), "UTF-8"));
+
+        try {
+            engine.fetch(Observable.from(new CoordinateReader(input, stats, System.err)))
+                    .toBlocking()
+                    .forEach(new Action1<BulkResult>() {
+                        @Override
+                        public void call(final BulkResult result) {
+                            try {
+                                output.write(result);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+
+                            stats.record(result);
+                            if (stats.getCount() % PROGRESS_INTERVAL == 0) {
+                                System.err.println(stats);
+                            }
+                        }
+                    });
+        } finally {
+            input.close();
+            output.close();
+        }
+
+        System.err.println(stats);
+        metrics.report();
+    }
+}
@@ -0,0 +1,56 @@
+package mu.node.rexweather.app.Bulk;
+
+/**
+ * A location to fetch the weather for.
+ */
+public class Coordinate {
+    private final double mLatitude;
+    private final double mLongitude;
+
+    private static final double MAXIMUM_LATITUDE = 90;
+    private static final double MAXIMUM_LONGITUDE = 180;
+
+    /**
+     * @throws IllegalArgumentException if either value is out of range
+     */
+    public Coordinate(final double latitude, final double longitude) {
+        if (!(Math.abs(latitude) <= MAXIMUM_LATITUDE)) {
+            throw new IllegalArgumentException("Latitude " + latitude + " is out of range");
+        }
+        if (!(Math.abs(longitude) <= MAXIMUM_LONGITUDE)) {
+            throw new IllegalArgumentException("Longitude " + longitude + " is out of range");
+        }
+
+        mLatitude = latitude;
+        mLongitude = longitude;
+    }
+
+    /**
+     * Parse a "latitude,longitude" pair, as found in each line of a bulk input file.
+     *
+     * @throws IllegalArgumentException if the text is not such a pair or either value is out of
+     *                                  range
+     */
+    public static Coordinate parse(final String text) {
+        final int separator = text.indexOf(',');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected latitude,longitude but got " + text);
+        }
+
+        return new Coordinate(Double.parseDouble(text.substring(0, separator).trim()),
+                Double.parseDouble(text.substring(separator + 1).trim()));
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    @Override
+    public String toString() {
+        return mLatitude + "," + mLongitude;
+    }
+}
@@ -0,0 +1,84 @@
+package mu.node.rexweather.app.Bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the coordinates of a bulk input file lazily, one "latitude,longitude" pair per line.
+ * Blank lines and lines starting with '#' are ignored. Lines that hold no valid coordinate are
+ * skipped with a warning and counted, so that one bad line does not end the run.
+ */
+public class CoordinateReader implements Iterable<Coordinate> {
+    private final BufferedReader mReader;
+    private final BulkStats mStats;
+    private final PrintStream mWarnings;
+
+    public CoordinateReader(final BufferedReader reader,
+                            final BulkStats stats,
+                            final PrintStream warnings) {
+        mReader = reader;
+        mStats = stats;
+        mWarnings = warnings;
+    }
+
+    @Override
+    public Iterator<Coordinate> iterator() {
+        return new Iterator<Coordinate>() {
+            private Coordinate mNext;
+            private int mLineNumber;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (mNext == null) {
+                        final String line = mReader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+
+                        mLineNumber++;
+                        final String trimmedLine = line.trim();
+                        if (!trimmedLine.isEmpty() && !trimmedLine.startsWith("#")) {
+                            mNext = parse(trimmedLine, mLineNumber);
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public Coordinate next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Coordinate coordinate = mNext;
+                mNext = null;
+                return coordinate;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Parse a line, or return null if it has to be skipped.
+     */
+    private Coordinate parse(final String line, final int lineNumber) {
+        try {
+            return Coordinate.parse(line);
+        } catch (IllegalArgumentException e) {
+            mStats.recordSkipped();
+            mWarnings.println("Skipping line " + lineNumber + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package mu.node.rexweather.app.Helpers;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherCondition;
+
+/**
+ * Folds forecasts for parts of a day, e.g. in 3 hour steps, into daily forecasts as they are
+ * read, in a single pass and without buffering them.
+ * <p/>
+ * Forecasts must be added in time order. A day's minimum and maximum are those of its
+ * forecasts, and its condition is that of the forecast nearest to midday.
+ */
+public class DailyForecastAggregator {
+    private static final long MILLISECONDS_IN_SECONDS = 1000;
+    private static final int MIDDAY_HOUR = 12;
+
+    private final Calendar mCalendar;
+    private final ForecastSeries mDailyForecasts;
+
+    private boolean mHasDay;
+    private long mDayEnd;
+    private long mMidday;
+    private long mMiddayDistance;
+    private long mTimestamp;
+    private WeatherCondition mCondition;
+    private float mMinimumTemperature;
+    private float mMaximumTemperature;
+
+    public DailyForecastAggregator(final TimeZone timeZone, final int capacity) {
+        mCalendar = Calendar.getInstance(timeZone);
+        mDailyForecasts = new ForecastSeries(null, capacity);
+    }
+
+    public void add(final long unixTimestamp,
+                    final WeatherCondition condition,
+                    final float minimumTemperature,
+                    final float maximumTemperature) {
+        final long milliseconds = unixTimestamp * MILLISECONDS_IN_SECONDS;
+
+        if (!mHasDay || milliseconds >= mDayEnd) {
+            finishDay();
+            startDay(milliseconds);
+            mMinimumTemperature = minimumTemperature;
+            mMaximumTemperature = maximumTemperature;
+        } else {
+            mMinimumTemperature = Math.min(mMinimumTemperature, minimumTemperature);
+            mMaximumTemperature = Math.max(mMaximumTemperature, maximumTemperature);
+        }
+
+        final long middayDistance = Math.abs(milliseconds - mMidday);
+        if (middayDistance < mMiddayDistance) {
+            mMiddayDistance = middayDistance;
+            mTimestamp = unixTimestamp;
+            mCondition = condition;
+        }
+    }
+
+    /**
+     * The daily forecasts of everything added so far. No more forecasts may be added afterwards.
+     */
+    public ForecastSeries finish() {
+        finishDay();
+        return mDailyForecasts;
+    }
+
+    private void startDay(final long milliseconds) {
+        mCalendar.setTimeInMillis(milliseconds);
+        mCalendar.set(Calendar.HOUR_OF_DAY, MIDDAY_HOUR);
+        mCalendar.set(Calendar.MINUTE, 0);
+        mCalendar.set(Calendar.SECOND, 0);
+        mCalendar.set(Calendar.MILLISECOND, 0);
+        mMidday = mCalendar.getTimeInMillis();
+
+        mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+        mCalendar.add(Calendar.DAY_OF_MONTH, 1);
+        mDayEnd = mCalendar.getTimeInMillis();
+
+        mMiddayDistance = Long.MAX_VALUE;
+        mHasDay = true;
+    }
+
+    private void finishDay() {
+        if (mHasDay) {
+            mDailyForecasts.append(mTimestamp, mCondition, mMinimumTemperature,
+                    mMaximumTemperature);
+            mHasDay = false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package mu.node.rexweather.app.Helpers;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats Unix timestamps into day labels such as "Today", "Tomorrow" and "Wednesday" without
+ * allocating.
+ * <p/>
+ * The local midnights of the coming days and their week days are computed once per day, so
+ * that classifying a timestamp is a search through a small array. Week day names are looked up
+ * once. Instances are not thread safe, and pick up time zone changes at the next midnight.
+ */
+public class DayBucketFormatter {
+    private static final long MILLISECONDS_IN_SECONDS = 1000;
+
+    // Enough days to cover the longest forecasts the web service offers.
+    private static final int DAYS = 16;
+
+    private final String mToday;
+    private final String mTomorrow;
+    private final String[] mWeekdayNames;
+    private final Calendar mCalendar;
+
+    // Start of each day from today onwards, plus the end of the last day.
+    private final long[] mMidnights = new long[DAYS + 1];
+    private final int[] mDaysOfWeek = new int[DAYS];
+
+    public DayBucketFormatter(final String today, final String tomorrow, final Locale locale) {
+        mToday = today;
+        mTomorrow = tomorrow;
+
+        // Indexed by Calendar.SUNDAY to Calendar.SATURDAY.
+        mWeekdayNames = DateFormatSymbols.getInstance(locale).getWeekdays();
+        mCalendar = Calendar.getInstance(TimeZone.getDefault(), locale);
+    }
+
+    public String format(final long unixTimestamp) {
+        return format(unixTimestamp, System.currentTimeMillis());
+    }
+
+    /**
+     * Format a Unix timestamp relative to the given current time, in milliseconds.
+     */
+    public String format(final long unixTimestamp, final long now) {
+        if (now < mMidnights[0] || now >= mMidnights[1]) {
+            computeMidnights(now);
+        }
+
+        final long milliseconds = unixTimestamp * MILLISECONDS_IN_SECONDS;
+        final int day = getDay(milliseconds);
+
+        if (day == 0) {
+            return mToday;
+        } else if (day == 1) {
+            return mTomorrow;
+        } else if (day > 1) {
+            return mWeekdayNames[mDaysOfWeek[day]];
+        } else {
+            // Outside the days we computed: reuse the calendar rather than allocate.
+            mCalendar.setTimeInMillis(milliseconds);
+            return mWeekdayNames[mCalendar.get(Calendar.DAY_OF_WEEK)];
+        }
+    }
+
+    /**
+     * Whether a time, in milliseconds, falls on the same day as the given current time.
+     */
+    public boolean isToday(final long milliseconds, final long now) {
+        if (now < mMidnights[0] || now >= mMidnights[1]) {
+            computeMidnights(now);
+        }
+
+        return getDay(milliseconds) == 0;
+    }
+
+    /**
+     * Index of the day a time falls in, counting from today, or -1 if it falls outside the
+     * days we computed.
+     */
+    private int getDay(final long milliseconds) {
+        if (milliseconds < mMidnights[0] || milliseconds >= mMidnights[DAYS]) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = DAYS - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (mMidnights[middle] <= milliseconds) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void computeMidnights(final long now) {
+        mCalendar.setTimeZone(TimeZone.getDefault());
+        mCalendar.setTimeInMillis(now);
+        mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+        mCalendar.set(Calendar.MINUTE, 0);
+        mCalendar.set(Calendar.SECOND, 0);
+        mCalendar.set(Calendar.MILLISECOND, 0);
+
+        // Step through the calendar rather than add 24 hours, as days around DST changes are not.
+        for (int day = 0; day < DAYS; day++) {
+            mMidnights[day] = mCalendar.getTimeInMillis();
+            mDaysOfWeek[day] = mCalendar.get(Calendar.DAY_OF_WEEK);
+            mCalendar.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        mMidnights[DAYS] = mCalendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,62 @@
+package mu.node.rexweather.app.Helpers;
+
+/**
+ * Geohash encoder used to quantize coordinates into cells, so that nearby location fixes map
+ * onto the same key.
+ */
+public class GeoHash {
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int BITS_PER_CHARACTER = 5;
+
+    public static final int MAXIMUM_PRECISION = 12;
+
+    /**
+     * Encode a coordinate into a geohash with the given number of characters. Each extra
+     * character shrinks the cell by a factor of 32; a precision of 5 gives cells of roughly
+     * 5 by 5 kilometres.
+     */
+    public static String encode(final double longitude, final double latitude,
+                                final int precision) {
+        if (precision < 1 || precision > MAXIMUM_PRECISION) {
+            throw new IllegalArgumentException("invalid precision");
+        }
+
+        final char[] hash = new char[precision];
+        double minimumLongitude = -180, maximumLongitude = 180;
+        double minimumLatitude = -90, maximumLatitude = 90;
+        boolean isLongitudeBit = true;
+
+        for (int i = 0; i < precision; i++) {
+            int character = 0;
+
+            for (int bit = 0; bit < BITS_PER_CHARACTER; bit++) {
+                character <<= 1;
+
+                // Bits alternate between longitude and latitude, starting with longitude.
+                if (isLongitudeBit) {
+                    final double middle = (minimumLongitude + maximumLongitude) / 2;
+                    if (longitude >= middle) {
+                        character |= 1;
+                        minimumLongitude = middle;
+                    } else {
+                        maximumLongitude = middle;
+                    }
+                } else {
+                    final double middle = (minimumLatitude + maximumLatitude) / 2;
+                    if (latitude >= middle) {
+                        character |= 1;
+                        minimumLatitude = middle;
+                    } else {
+                        maximumLatitude = middle;
+                    }
+                }
+
+                isLongitudeBit = !isLongitudeBit;
+            }
+
+            hash[i] = BASE_32[character];
+        }
+
+        return new String(hash);
+    }
+}
@@ -0,0 +1,45 @@
+package mu.node.rexweather.app.Helpers;
+
+/**
+ * Formats temperatures as whole degrees, e.g. "19°". The strings for every temperature on record
+ * are built once, so formatting one is a table lookup rather than an allocation.
+ */
+public class TemperatureFormatter {
+
+    /**
+     * Units temperatures can be shown in. The models always hold them in degrees Celsius.
+     */
+    public enum Unit {
+        CELSIUS,
+        FAHRENHEIT
+    }
+
+    // Covers the coldest and hottest temperatures on record, in either unit.
+    private static final int MINIMUM_CACHED_DEGREES = -130;
+    private static final int MAXIMUM_CACHED_DEGREES = 140;
+
+    private static final String[] CACHED_STRINGS =
+            new String[MAXIMUM_CACHED_DEGREES - MINIMUM_CACHED_DEGREES + 1];
+
+    static {
+        for (int i = 0; i < CACHED_STRINGS.length; i++) {
+            CACHED_STRINGS[i] = (MINIMUM_CACHED_DEGREES + i) + "°";
+        }
+    }
+
+    public static String format(float temperature) {
+        final int degrees = Math.round(temperature);
+        if (degrees < MINIMUM_CACHED_DEGREES || degrees > MAXIMUM_CACHED_DEGREES) {
+            return degrees + "°";
+        }
+
+        return CACHED_STRINGS[degrees - MINIMUM_CACHED_DEGREES];
+    }
+
+    /**
+     * Format a temperature in degrees Celsius in the given unit.
+     */
+    public static String format(final float celsius, final Unit unit) {
+        return format(unit == Unit.FAHRENHEIT ? celsius * 9 / 5 + 32 : celsius);
+    }
+}
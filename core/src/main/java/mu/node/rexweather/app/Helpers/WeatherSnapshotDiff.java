@@ -0,0 +1,173 @@
+package mu.node.rexweather.app.Helpers;
+
+import java.util.Arrays;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * The minimal set of list updates that turn the rows of one weather snapshot into those of
+ * another: an optional current weather header followed by one row per forecast.
+ * <p/>
+ * Forecasts are matched by timestamp. As both series are in time order, a single merge pass
+ * finds every insertion, removal and change, and rows never move relative to each other.
+ * Computing a diff is meant for a background thread; dispatching it for the main thread.
+ */
+public class WeatherSnapshotDiff {
+
+    /**
+     * Receives the updates, e.g. a RecyclerView adapter, whose notify methods match these.
+     */
+    public interface Callback {
+        void notifyItemRangeInserted(int position, int count);
+
+        void notifyItemRangeRemoved(int position, int count);
+
+        void notifyItemRangeChanged(int position, int count);
+    }
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    // Operations are stored as (type, position, count) triples.
+    private int[] mOperations = new int[3 * 4];
+    private int mOperationCount;
+
+    private boolean mIsRelabelling;
+
+    /**
+     * Diff two snapshots. If the rows' day labels have moved on since the old snapshot was
+     * shown, e.g. because it was shown yesterday, every forecast row is treated as changed.
+     */
+    public static WeatherSnapshotDiff compute(final WeatherSnapshot oldSnapshot,
+                                              final WeatherSnapshot newSnapshot,
+                                              final boolean isRelabelling) {
+        final WeatherSnapshotDiff diff = new WeatherSnapshotDiff();
+        diff.mIsRelabelling = isRelabelling;
+        diff.diffHeader(oldSnapshot.getCurrentWeather(), newSnapshot.getCurrentWeather());
+        diff.diffForecasts(oldSnapshot.getWeatherForecasts(), newSnapshot.getWeatherForecasts(),
+                newSnapshot.getCurrentWeather() != null ? 1 : 0);
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return mOperationCount == 0;
+    }
+
+    /**
+     * Notify an adapter, already holding the new snapshot, of the updates.
+     */
+    public void dispatchTo(final Callback adapter) {
+        for (int i = 0; i < mOperationCount; i++) {
+            final int type = mOperations[3 * i];
+            final int position = mOperations[3 * i + 1];
+            final int count = mOperations[3 * i + 2];
+
+            switch (type) {
+                case INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                default:
+                    adapter.notifyItemRangeChanged(position, count);
+            }
+        }
+    }
+
+    private void diffHeader(final CurrentWeather oldWeather, final CurrentWeather newWeather) {
+        if (oldWeather == null && newWeather != null) {
+            add(INSERT, 0);
+        } else if (oldWeather != null && newWeather == null) {
+            add(REMOVE, 0);
+        } else if (oldWeather != null && !isSameHeader(oldWeather, newWeather)) {
+            add(CHANGE, 0);
+        }
+    }
+
+    /**
+     * Diff the forecast rows, which start at the given offset once the header is updated.
+     */
+    private void diffForecasts(final ForecastSeries oldForecasts,
+                               final ForecastSeries newForecasts,
+                               final int offset) {
+        final int oldSize = oldForecasts.size();
+        final int newSize = newForecasts.size();
+        int oldIndex = 0;
+        int newIndex = 0;
+        int position = offset;
+
+        while (oldIndex < oldSize || newIndex < newSize) {
+            if (newIndex == newSize || (oldIndex < oldSize
+                    && oldForecasts.getTimestamp(oldIndex) < newForecasts.getTimestamp(newIndex))) {
+                add(REMOVE, position);
+                oldIndex++;
+            } else if (oldIndex == oldSize
+                    || newForecasts.getTimestamp(newIndex) < oldForecasts.getTimestamp(oldIndex)) {
+                add(INSERT, position);
+                newIndex++;
+                position++;
+            } else {
+                if (mIsRelabelling
+                        || !isSameForecast(oldForecasts, oldIndex, newForecasts, newIndex)) {
+                    add(CHANGE, position);
+                }
+                oldIndex++;
+                newIndex++;
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Record a single row operation, merging it into the previous one where they form a range.
+     */
+    private void add(final int type, final int position) {
+        if (mOperationCount > 0) {
+            final int last = 3 * (mOperationCount - 1);
+            final int lastPosition = mOperations[last + 1];
+            final int lastCount = mOperations[last + 2];
+
+            if (mOperations[last] == type && (type == REMOVE ? position == lastPosition
+                    : position == lastPosition + lastCount)) {
+                mOperations[last + 2]++;
+                return;
+            }
+        }
+
+        if (3 * (mOperationCount + 1) > mOperations.length) {
+            mOperations = Arrays.copyOf(mOperations, mOperations.length * 2);
+        }
+
+        mOperations[3 * mOperationCount] = type;
+        mOperations[3 * mOperationCount + 1] = position;
+        mOperations[3 * mOperationCount + 2] = 1;
+        mOperationCount++;
+    }
+
+    // Rows only show rounded temperatures, so smaller differences need no rebinding.
+
+    private static boolean isSameHeader(final CurrentWeather oldWeather,
+                                        final CurrentWeather newWeather) {
+        return equals(oldWeather.getLocationName(), newWeather.getLocationName())
+                && oldWeather.getCondition() == newWeather.getCondition()
+                && Math.round(oldWeather.getTemperature())
+                == Math.round(newWeather.getTemperature());
+    }
+
+    private static boolean isSameForecast(final ForecastSeries oldForecasts, final int oldIndex,
+                                          final ForecastSeries newForecasts, final int newIndex) {
+        return oldForecasts.getConditionCode(oldIndex) == newForecasts.getConditionCode(newIndex)
+                && Math.round(oldForecasts.getMinimumTemperature(oldIndex))
+                == Math.round(newForecasts.getMinimumTemperature(newIndex))
+                && Math.round(oldForecasts.getMaximumTemperature(oldIndex))
+                == Math.round(newForecasts.getMaximumTemperature(newIndex));
+    }
+
+    private static boolean equals(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
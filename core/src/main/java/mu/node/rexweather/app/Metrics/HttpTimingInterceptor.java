@@ -0,0 +1,63 @@
+package mu.node.rexweather.app.Metrics;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+
+/**
+ * Times the network phases of HTTP calls. Requests served from the cache never reach the
+ * network, so they are not recorded.
+ * <p/>
+ * OkHttp does not report DNS and connection events, so we tag each request with the time it
+ * was issued and measure how long it takes to reach the network with a connection in hand.
+ */
+public class HttpTimingInterceptor {
+    private final WeatherMetrics mMetrics;
+
+    public HttpTimingInterceptor(final WeatherMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Attach the timing interceptors to a HTTP client. Install this after any application
+     * interceptors that issue requests of their own, so that those are timed too.
+     */
+    public void install(final OkHttpClient client) {
+        client.interceptors().add(new Interceptor() {
+            @Override
+            public Response intercept(final Chain chain) throws IOException {
+                final Request request = chain.request().newBuilder()
+                        .tag(new RequestStartTime(WeatherMetrics.startTimer()))
+                        .build();
+                return chain.proceed(request);
+            }
+        });
+
+        client.networkInterceptors().add(new Interceptor() {
+            @Override
+            public Response intercept(final Chain chain) throws IOException {
+                final Object tag = chain.request().tag();
+                if (tag instanceof RequestStartTime) {
+                    mMetrics.stopTimer(WeatherMetrics.Stage.CONNECT,
+                            ((RequestStartTime) tag).mStartTime);
+                }
+
+                final long startTime = WeatherMetrics.startTimer();
+                final Response response = chain.proceed(chain.request());
+                mMetrics.stopTimer(WeatherMetrics.Stage.FIRST_BYTE, startTime);
+                return response;
+            }
+        });
+    }
+
+    private static class RequestStartTime {
+        final long mStartTime;
+
+        RequestStartTime(final long startTime) {
+            mStartTime = startTime;
+        }
+    }
+}
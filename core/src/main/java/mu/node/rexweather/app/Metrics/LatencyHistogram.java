@@ -0,0 +1,103 @@
+package mu.node.rexweather.app.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Fixed bucket histogram of latencies in milliseconds. Recording is allocation free so that it
+ * can sit on hot paths, including the main thread.
+ */
+public class LatencyHistogram {
+    // Upper bounds of each bucket, inclusive. The last bucket catches everything else.
+    private static final long[] BUCKET_BOUNDS_MILLISECONDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000,
+            Long.MAX_VALUE
+    };
+
+    private final long[] mBucketCounts = new long[BUCKET_BOUNDS_MILLISECONDS.length];
+    private long mCount;
+    private long mSum;
+    private long mMinimum = Long.MAX_VALUE;
+    private long mMaximum;
+
+    public synchronized void record(final long milliseconds) {
+        final long value = Math.max(0, milliseconds);
+
+        int bucket = 0;
+        while (value > BUCKET_BOUNDS_MILLISECONDS[bucket]) {
+            bucket++;
+        }
+
+        mBucketCounts[bucket]++;
+        mCount++;
+        mSum += value;
+        mMinimum = Math.min(mMinimum, value);
+        mMaximum = Math.max(mMaximum, value);
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(Arrays.copyOf(mBucketCounts, mBucketCounts.length), mCount, mSum,
+                mCount == 0 ? 0 : mMinimum, mMaximum);
+    }
+
+    /**
+     * Immutable copy of a histogram at a point in time.
+     */
+    public static class Snapshot {
+        private final long[] mBucketCounts;
+        private final long mCount;
+        private final long mSum;
+        private final long mMinimum;
+        private final long mMaximum;
+
+        Snapshot(final long[] bucketCounts, final long count, final long sum,
+                 final long minimum, final long maximum) {
+            mBucketCounts = bucketCounts;
+            mCount = count;
+            mSum = sum;
+            mMinimum = minimum;
+            mMaximum = maximum;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMinimum() {
+            return mMinimum;
+        }
+
+        public long getMaximum() {
+            return mMaximum;
+        }
+
+        public long getMean() {
+            return mCount == 0 ? 0 : mSum / mCount;
+        }
+
+        /**
+         * Estimate a percentile, e.g. 0.95, as the upper bound of the bucket it falls in.
+         */
+        public long getPercentile(final double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+
+            final long rank = (long) Math.ceil(percentile * mCount);
+            long seen = 0;
+            for (int bucket = 0; bucket < mBucketCounts.length; bucket++) {
+                seen += mBucketCounts[bucket];
+                if (seen >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MILLISECONDS[bucket], mMaximum);
+                }
+            }
+
+            return mMaximum;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + " mean=" + getMean() + "ms p50=" + getPercentile(0.5)
+                    + "ms p95=" + getPercentile(0.95) + "ms max=" + mMaximum + "ms";
+        }
+    }
+}
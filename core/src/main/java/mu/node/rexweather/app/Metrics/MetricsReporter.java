@@ -0,0 +1,8 @@
+package mu.node.rexweather.app.Metrics;
+
+/**
+ * Receives snapshots of the weather metrics, e.g. to log them or ship them to a backend.
+ */
+public interface MetricsReporter {
+    void report(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,101 @@
+package mu.node.rexweather.app.Metrics;
+
+import java.util.Map;
+
+/**
+ * Immutable view of the weather metrics at a point in time.
+ */
+public class MetricsSnapshot {
+    private final Map<WeatherMetrics.Stage, LatencyHistogram.Snapshot> mLatencies;
+    private final Map<String, long[]> mOutcomeCounts;
+    private final Map<String, QueueSnapshot> mQueues;
+
+    MetricsSnapshot(final Map<WeatherMetrics.Stage, LatencyHistogram.Snapshot> latencies,
+                    final Map<String, long[]> outcomeCounts,
+                    final Map<String, QueueSnapshot> queues) {
+        mLatencies = latencies;
+        mOutcomeCounts = outcomeCounts;
+        mQueues = queues;
+    }
+
+    public LatencyHistogram.Snapshot getLatency(final WeatherMetrics.Stage stage) {
+        return mLatencies.get(stage);
+    }
+
+    public long getCount(final String endpoint, final WeatherMetrics.Outcome outcome) {
+        final long[] counts = mOutcomeCounts.get(endpoint);
+        return counts == null ? 0 : counts[outcome.ordinal()];
+    }
+
+    /**
+     * The state of a queue, or null if nothing has waited in it.
+     */
+    public QueueSnapshot getQueue(final String queue) {
+        return mQueues.get(queue);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+
+        for (final Map.Entry<WeatherMetrics.Stage, LatencyHistogram.Snapshot> latency
+                : mLatencies.entrySet()) {
+            builder.append(latency.getKey()).append(": ").append(latency.getValue()).append('\n');
+        }
+
+        for (final Map.Entry<String, long[]> counts : mOutcomeCounts.entrySet()) {
+            builder.append(counts.getKey()).append(':');
+            for (final WeatherMetrics.Outcome outcome : WeatherMetrics.Outcome.values()) {
+                builder.append(' ').append(outcome).append('=')
+                        .append(counts.getValue()[outcome.ordinal()]);
+            }
+            builder.append('\n');
+        }
+
+        for (final Map.Entry<String, QueueSnapshot> queue : mQueues.entrySet()) {
+            builder.append(queue.getKey()).append(": ").append(queue.getValue()).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * How long requests waited in a queue, how many are waiting, and how many were dropped.
+     */
+    public static class QueueSnapshot {
+        private final LatencyHistogram.Snapshot mWaits;
+        private final int mDepth;
+        private final int mMaximumDepth;
+        private final long mShedCount;
+
+        QueueSnapshot(final LatencyHistogram.Snapshot waits, final int depth,
+                      final int maximumDepth, final long shedCount) {
+            mWaits = waits;
+            mDepth = depth;
+            mMaximumDepth = maximumDepth;
+            mShedCount = shedCount;
+        }
+
+        public LatencyHistogram.Snapshot getWaits() {
+            return mWaits;
+        }
+
+        public int getDepth() {
+            return mDepth;
+        }
+
+        public int getMaximumDepth() {
+            return mMaximumDepth;
+        }
+
+        public long getShedCount() {
+            return mShedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + mDepth + " max=" + mMaximumDepth + " shed=" + mShedCount
+                    + " wait " + mWaits;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package mu.node.rexweather.app.Metrics;
+
+import java.io.PrintStream;
+
+/**
+ * Writes metrics snapshots to a stream, e.g. the console.
+ */
+public class PrintStreamMetricsReporter implements MetricsReporter {
+    private final PrintStream mStream;
+
+    public PrintStreamMetricsReporter(final PrintStream stream) {
+        mStream = stream;
+    }
+
+    @Override
+    public void report(final MetricsSnapshot snapshot) {
+        mStream.print(snapshot);
+        mStream.flush();
+    }
+}
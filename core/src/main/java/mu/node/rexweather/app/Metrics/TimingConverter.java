@@ -0,0 +1,36 @@
+package mu.node.rexweather.app.Metrics;
+
+import java.lang.reflect.Type;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Records how long a Retrofit converter takes to read and parse response bodies.
+ */
+public class TimingConverter implements Converter {
+    private final Converter mConverter;
+    private final WeatherMetrics mMetrics;
+
+    public TimingConverter(final Converter converter, final WeatherMetrics metrics) {
+        mConverter = converter;
+        mMetrics = metrics;
+    }
+
+    @Override
+    public Object fromBody(final TypedInput body, final Type type) throws ConversionException {
+        final long startTime = WeatherMetrics.startTimer();
+        try {
+            return mConverter.fromBody(body, type);
+        } finally {
+            mMetrics.stopTimer(WeatherMetrics.Stage.PARSE, startTime);
+        }
+    }
+
+    @Override
+    public TypedOutput toBody(final Object object) {
+        return mConverter.toBody(object);
+    }
+}
@@ -0,0 +1,252 @@
+package mu.node.rexweather.app.Metrics;
+
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+/**
+ * Latency histograms for each stage of the weather refresh pipeline, outcome counters for each
+ * endpoint it talks to, and the state of the queues requests wait in before being made.
+ */
+public class WeatherMetrics {
+
+    public enum Stage {
+        LOCATION,       // Waiting for a location fix.
+        CONNECT,        // DNS lookup and connection set-up, or picking a pooled connection.
+        FIRST_BYTE,     // Sending the request until the response headers arrive.
+        PARSE,          // Reading the response body and building models from it.
+        FIRST_BIND      // Data handed to the list until its first row is bound.
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        ERROR,
+        TIMEOUT
+    }
+
+    private final Map<Stage, LatencyHistogram> mLatencies = new EnumMap<>(Stage.class);
+    private final ConcurrentHashMap<String, AtomicLongArray> mOutcomeCounts =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, QueueStats> mQueues = new ConcurrentHashMap<>();
+    private volatile MetricsReporter mReporter;
+
+    public WeatherMetrics() {
+        for (final Stage stage : Stage.values()) {
+            mLatencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void setReporter(final MetricsReporter reporter) {
+        mReporter = reporter;
+    }
+
+    /**
+     * Start timing a stage. Pass the result to {@link #stopTimer(Stage, long)}.
+     */
+    public static long startTimer() {
+        return System.nanoTime();
+    }
+
+    public void stopTimer(final Stage stage, final long startTime) {
+        recordLatency(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    public void recordLatency(final Stage stage, final long milliseconds) {
+        mLatencies.get(stage).record(milliseconds);
+    }
+
+    public void recordOutcome(final String endpoint, final Outcome outcome) {
+        AtomicLongArray counts = mOutcomeCounts.get(endpoint);
+        if (counts == null) {
+            final AtomicLongArray newCounts = new AtomicLongArray(Outcome.values().length);
+            counts = mOutcomeCounts.putIfAbsent(endpoint, newCounts);
+            if (counts == null) {
+                counts = newCounts;
+            }
+        }
+
+        counts.incrementAndGet(outcome.ordinal());
+    }
+
+    public void recordError(final String endpoint, final Throwable error) {
+        recordOutcome(endpoint, isTimeout(error) ? Outcome.TIMEOUT : Outcome.ERROR);
+    }
+
+    /**
+     * Record how long a request waited in a queue before it was made.
+     */
+    public void recordQueueWait(final String queue, final long milliseconds) {
+        getQueueStats(queue).mWaits.record(milliseconds);
+    }
+
+    /**
+     * Record how many requests are waiting in a queue now.
+     */
+    public void recordQueueDepth(final String queue, final int depth) {
+        final QueueStats stats = getQueueStats(queue);
+        stats.mDepth.set(depth);
+
+        int maximumDepth = stats.mMaximumDepth.get();
+        while (depth > maximumDepth && !stats.mMaximumDepth.compareAndSet(maximumDepth, depth)) {
+            maximumDepth = stats.mMaximumDepth.get();
+        }
+    }
+
+    /**
+     * Count a request that was dropped because its queue was full.
+     */
+    public void recordShed(final String queue) {
+        getQueueStats(queue).mShedCount.incrementAndGet();
+    }
+
+    private QueueStats getQueueStats(final String queue) {
+        QueueStats stats = mQueues.get(queue);
+        if (stats == null) {
+            final QueueStats newStats = new QueueStats();
+            stats = mQueues.putIfAbsent(queue, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Count whether an Observable talking to an endpoint succeeds: it succeeds once it delivers
+     * its first item, or completes without any. Operators such as zip may unsubscribe as soon
+     * as they have the item they need, so waiting for completion would miss successes.
+     */
+    public <T> Observable.Transformer<T, T> countOutcomes(final String endpoint) {
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> source) {
+                return Observable.defer(new Func0<Observable<T>>() {
+                    @Override
+                    public Observable<T> call() {
+                        final boolean[] isCounted = {false};
+
+                        return source.doOnNext(new Action1<T>() {
+                            @Override
+                            public void call(final T item) {
+                                if (!isCounted[0]) {
+                                    isCounted[0] = true;
+                                    recordOutcome(endpoint, Outcome.SUCCESS);
+                                }
+                            }
+                        }).doOnCompleted(new Action0() {
+                            @Override
+                            public void call() {
+                                if (!isCounted[0]) {
+                                    isCounted[0] = true;
+                                    recordOutcome(endpoint, Outcome.SUCCESS);
+                                }
+                            }
+                        }).doOnError(new Action1<Throwable>() {
+                            @Override
+                            public void call(final Throwable error) {
+                                if (!isCounted[0]) {
+                                    isCounted[0] = true;
+                                    recordError(endpoint, error);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Time from subscription until the first item of an Observable, and count how it ends.
+     */
+    public <T> Observable.Transformer<T, T> timeFirstItem(final Stage stage,
+                                                          final String endpoint) {
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> source) {
+                return Observable.defer(new Func0<Observable<T>>() {
+                    @Override
+                    public Observable<T> call() {
+                        final long startTime = startTimer();
+                        final boolean[] isFirstItem = {true};
+
+                        return source.doOnNext(new Action1<T>() {
+                            @Override
+                            public void call(final T item) {
+                                if (isFirstItem[0]) {
+                                    isFirstItem[0] = false;
+                                    stopTimer(stage, startTime);
+                                }
+                            }
+                        });
+                    }
+                }).compose(WeatherMetrics.this.<T>countOutcomes(endpoint));
+            }
+        };
+    }
+
+    public MetricsSnapshot snapshot() {
+        final Map<Stage, LatencyHistogram.Snapshot> latencies = new EnumMap<>(Stage.class);
+        for (final Map.Entry<Stage, LatencyHistogram> latency : mLatencies.entrySet()) {
+            latencies.put(latency.getKey(), latency.getValue().snapshot());
+        }
+
+        final Map<String, long[]> outcomeCounts = new TreeMap<>();
+        for (final Map.Entry<String, AtomicLongArray> counts : mOutcomeCounts.entrySet()) {
+            final long[] values = new long[counts.getValue().length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = counts.getValue().get(i);
+            }
+            outcomeCounts.put(counts.getKey(), values);
+        }
+
+        final Map<String, MetricsSnapshot.QueueSnapshot> queues = new TreeMap<>();
+        for (final Map.Entry<String, QueueStats> queue : mQueues.entrySet()) {
+            final QueueStats stats = queue.getValue();
+            queues.put(queue.getKey(), new MetricsSnapshot.QueueSnapshot(stats.mWaits.snapshot(),
+                    stats.mDepth.get(), stats.mMaximumDepth.get(), stats.mShedCount.get()));
+        }
+
+        return new MetricsSnapshot(latencies, outcomeCounts, queues);
+    }
+
+    /**
+     * Hand a snapshot to the reporter, if there is one.
+     */
+    public void report() {
+        final MetricsReporter reporter = mReporter;
+        if (reporter != null) {
+            reporter.report(snapshot());
+        }
+    }
+
+    private static boolean isTimeout(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class QueueStats {
+        final LatencyHistogram mWaits = new LatencyHistogram();
+        final AtomicInteger mDepth = new AtomicInteger();
+        final AtomicInteger mMaximumDepth = new AtomicInteger();
+        final AtomicLong mShedCount = new AtomicLong();
+    }
+}
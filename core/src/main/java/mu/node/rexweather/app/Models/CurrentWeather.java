@@ -1,19 +1,26 @@
 package mu.node.rexweather.app.Models;
 
 public class CurrentWeather extends WeatherForecast {
+    private final int mCityId;  // Open Weather Map city ID.
     private final float mTemperature;  // Current temperature.
 
-    public CurrentWeather(final String locationName,
+    public CurrentWeather(final int cityId,
+                          final String locationName,
                           final long timestamp,
-                          final String description,
+                          final WeatherCondition condition,
                           final float temperature,
                           final float minimumTemperature,
                           final float maximumTemperature) {
 
-        super(locationName, timestamp, description, minimumTemperature, maximumTemperature);
+        super(locationName, timestamp, condition, minimumTemperature, maximumTemperature);
+        mCityId = cityId;
         mTemperature = temperature;
     }
 
+    public int getCityId() {
+        return mCityId;
+    }
+
     public float getTemperature() {
         return mTemperature;
     }
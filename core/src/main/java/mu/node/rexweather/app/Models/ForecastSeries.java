@@ -0,0 +1,148 @@
+package mu.node.rexweather.app.Models;
+
+import java.util.Arrays;
+
+/**
+ * Compact, column oriented series of weather forecasts for a single location.
+ * <p/>
+ * Forecasts are stored in parallel primitive arrays rather than as one object each, and their
+ * conditions as codes of the shared {@link WeatherCondition}s. A series is built by appending
+ * to it, and becomes read only as soon as a window or renamed copy is taken from it: these
+ * share its arrays, so they cost a single small object, and neither side can then change them.
+ */
+public class ForecastSeries {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private final String mLocationName;
+    private final int mOffset;
+    private boolean mIsReadOnly;
+    private int mSize;
+
+    private long[] mTimestamps;
+    private float[] mMinimumTemperatures;
+    private float[] mMaximumTemperatures;
+    private short[] mConditionCodes;
+
+    public ForecastSeries(final String locationName) {
+        this(locationName, DEFAULT_CAPACITY);
+    }
+
+    public ForecastSeries(final String locationName, final int capacity) {
+        mLocationName = locationName;
+        mOffset = 0;
+        mIsReadOnly = false;
+
+        final int initialCapacity = Math.max(1, capacity);
+        mTimestamps = new long[initialCapacity];
+        mMinimumTemperatures = new float[initialCapacity];
+        mMaximumTemperatures = new float[initialCapacity];
+        mConditionCodes = new short[initialCapacity];
+    }
+
+    private ForecastSeries(final ForecastSeries series, final String locationName,
+                           final int offset, final int size) {
+        series.mIsReadOnly = true;
+
+        mLocationName = locationName;
+        mOffset = offset;
+        mSize = size;
+        mIsReadOnly = true;
+        mTimestamps = series.mTimestamps;
+        mMinimumTemperatures = series.mMinimumTemperatures;
+        mMaximumTemperatures = series.mMaximumTemperatures;
+        mConditionCodes = series.mConditionCodes;
+    }
+
+    /**
+     * Append a forecast to the end of the series.
+     *
+     * @throws IllegalStateException if the series is read only, having been shared
+     */
+    public void append(final long timestamp,
+                       final WeatherCondition condition,
+                       final float minimumTemperature,
+                       final float maximumTemperature) {
+        if (mIsReadOnly) {
+            throw new IllegalStateException("A forecast series is read only once shared");
+        }
+
+        if (mSize == mTimestamps.length) {
+            final int capacity = mSize * 2;
+            mTimestamps = Arrays.copyOf(mTimestamps, capacity);
+            mMinimumTemperatures = Arrays.copyOf(mMinimumTemperatures, capacity);
+            mMaximumTemperatures = Arrays.copyOf(mMaximumTemperatures, capacity);
+            mConditionCodes = Arrays.copyOf(mConditionCodes, capacity);
+        }
+
+        mTimestamps[mSize] = timestamp;
+        mMinimumTemperatures[mSize] = minimumTemperature;
+        mMaximumTemperatures[mSize] = maximumTemperature;
+        mConditionCodes[mSize] = (short) condition.getCode();
+        mSize++;
+    }
+
+    /**
+     * A copy of this series under a different location name. The forecasts are shared, not
+     * copied, so both series are read only from then on.
+     */
+    public ForecastSeries withLocationName(final String locationName) {
+        return new ForecastSeries(this, locationName, mOffset, mSize);
+    }
+
+    /**
+     * A view of part of this series. The forecasts are shared, not copied, so both series are
+     * read only from then on.
+     */
+    public ForecastSeries window(final int start, final int size) {
+        if (start < 0 || size < 0 || start + size > mSize) {
+            throw new IndexOutOfBoundsException("Window " + start + "+" + size
+                    + " is outside a series of " + mSize);
+        }
+
+        return new ForecastSeries(this, mLocationName, mOffset + start, size);
+    }
+
+    public String getLocationName() {
+        return mLocationName;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getTimestamp(final int index) {
+        return mTimestamps[checkIndex(index)];
+    }
+
+    /**
+     * The code of a forecast's condition, so that two conditions can be compared without
+     * looking them up.
+     */
+    public int getConditionCode(final int index) {
+        return mConditionCodes[checkIndex(index)];
+    }
+
+    public WeatherCondition getCondition(final int index) {
+        return WeatherCondition.forCode(getConditionCode(index));
+    }
+
+    public String getDescription(final int index) {
+        return getCondition(index).getDescription();
+    }
+
+    public float getMinimumTemperature(final int index) {
+        return mMinimumTemperatures[checkIndex(index)];
+    }
+
+    public float getMaximumTemperature(final int index) {
+        return mMaximumTemperatures[checkIndex(index)];
+    }
+
+    private int checkIndex(final int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + " in a series of " + mSize);
+        }
+
+        return mOffset + index;
+    }
+}
@@ -0,0 +1,29 @@
+package mu.node.rexweather.app.Models;
+
+/**
+ * Forecasts in 3 hour steps for the coming five days, along with the daily forecasts derived
+ * from them, so that one response serves both the hourly and the daily view.
+ */
+public class HourlyForecast {
+    private final ForecastSeries mHourlyForecasts;
+    private final ForecastSeries mDailyForecasts;
+
+    public HourlyForecast(final ForecastSeries hourlyForecasts,
+                          final ForecastSeries dailyForecasts) {
+        mHourlyForecasts = hourlyForecasts;
+        mDailyForecasts = dailyForecasts;
+    }
+
+    public ForecastSeries getHourlyForecasts() {
+        return mHourlyForecasts;
+    }
+
+    public ForecastSeries getDailyForecasts() {
+        return mDailyForecasts;
+    }
+
+    public HourlyForecast withLocationName(final String locationName) {
+        return new HourlyForecast(mHourlyForecasts.withLocationName(locationName),
+                mDailyForecasts.withLocationName(locationName));
+    }
+}
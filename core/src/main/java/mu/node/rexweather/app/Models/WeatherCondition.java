@@ -0,0 +1,199 @@
+package mu.node.rexweather.app.Models;
+
+/**
+ * A weather condition, as identified by an Open Weather Map condition code.
+ * <p/>
+ * Conditions are immutable flyweights, one per code, looked up in a static table. Models hold
+ * the code or the shared condition rather than a description string of their own, so two
+ * conditions can be compared with ==. Each condition carries its description and the glyph
+ * of its Weather Icons icon, so showing one needs no lookups.
+ *
+ * @see <a href="http://openweathermap.org/weather-conditions">Weather condition codes</a>
+ */
+public final class WeatherCondition {
+    private static final int MAXIMUM_CODE = 999;
+
+    // Weather Icons glyphs.
+    private static final char DAY_SUNNY = '\uf00d';
+    private static final char DAY_CLOUDY = '\uf002';
+    private static final char CLOUDY = '\uf013';
+    private static final char FOG = '\uf014';
+    private static final char HAIL = '\uf015';
+    private static final char LIGHTNING = '\uf016';
+    private static final char RAIN_MIX = '\uf017';
+    private static final char RAIN = '\uf019';
+    private static final char SHOWERS = '\uf01a';
+    private static final char SNOW = '\uf01b';
+    private static final char SPRINKLE = '\uf01c';
+    private static final char STORM_SHOWERS = '\uf01d';
+    private static final char THUNDERSTORM = '\uf01e';
+    private static final char WINDY = '\uf021';
+    private static final char STRONG_WIND = '\uf050';
+    private static final char TORNADO = '\uf056';
+    private static final char SMOKE = '\uf062';
+    private static final char DUST = '\uf063';
+    private static final char HURRICANE = '\uf073';
+    private static final char HOT = '\uf072';
+    private static final char SNOWFLAKE_COLD = '\uf076';
+    private static final char NOT_AVAILABLE = '\uf07b';
+    private static final char SLEET = '\uf0b5';
+    private static final char DAY_HAZE = '\uf0b6';
+
+    /**
+     * The condition of forecasts that came without one, or with a code outside any group.
+     */
+    public static final WeatherCondition UNKNOWN = new WeatherCondition(0, null, NOT_AVAILABLE);
+
+    private static final WeatherCondition[] CONDITIONS = new WeatherCondition[MAXIMUM_CODE + 1];
+
+    static {
+        define(200, "thunderstorm with light rain", THUNDERSTORM);
+        define(201, "thunderstorm with rain", THUNDERSTORM);
+        define(202, "thunderstorm with heavy rain", THUNDERSTORM);
+        define(210, "light thunderstorm", LIGHTNING);
+        define(211, "thunderstorm", LIGHTNING);
+        define(212, "heavy thunderstorm", LIGHTNING);
+        define(221, "ragged thunderstorm", LIGHTNING);
+        define(230, "thunderstorm with light drizzle", STORM_SHOWERS);
+        define(231, "thunderstorm with drizzle", STORM_SHOWERS);
+        define(232, "thunderstorm with heavy drizzle", STORM_SHOWERS);
+
+        define(300, "light intensity drizzle", SPRINKLE);
+        define(301, "drizzle", SPRINKLE);
+        define(302, "heavy intensity drizzle", SPRINKLE);
+        define(310, "light intensity drizzle rain", SPRINKLE);
+        define(311, "drizzle rain", SPRINKLE);
+        define(312, "heavy intensity drizzle rain", SPRINKLE);
+        define(313, "shower rain and drizzle", SHOWERS);
+        define(314, "heavy shower rain and drizzle", SHOWERS);
+        define(321, "shower drizzle", SHOWERS);
+
+        define(500, "light rain", RAIN);
+        define(501, "moderate rain", RAIN);
+        define(502, "heavy intensity rain", RAIN);
+        define(503, "very heavy rain", RAIN);
+        define(504, "extreme rain", RAIN);
+        define(511, "freezing rain", RAIN_MIX);
+        define(520, "light intensity shower rain", SHOWERS);
+        define(521, "shower rain", SHOWERS);
+        define(522, "heavy intensity shower rain", SHOWERS);
+        define(531, "ragged shower rain", SHOWERS);
+
+        define(600, "light snow", SNOW);
+        define(601, "snow", SNOW);
+        define(602, "heavy snow", SNOW);
+        define(611, "sleet", SLEET);
+        define(612, "shower sleet", SLEET);
+        define(615, "light rain and snow", RAIN_MIX);
+        define(616, "rain and snow", RAIN_MIX);
+        define(620, "light shower snow", SNOW);
+        define(621, "shower snow", SNOW);
+        define(622, "heavy shower snow", SNOW);
+
+        define(701, "mist", FOG);
+        define(711, "smoke", SMOKE);
+        define(721, "haze", DAY_HAZE);
+        define(731, "sand, dust whirls", DUST);
+        define(741, "fog", FOG);
+        define(751, "sand", DUST);
+        define(761, "dust", DUST);
+        define(762, "volcanic ash", SMOKE);
+        define(771, "squalls", STRONG_WIND);
+        define(781, "tornado", TORNADO);
+
+        define(800, "sky is clear", DAY_SUNNY);
+        define(801, "few clouds", DAY_CLOUDY);
+        define(802, "scattered clouds", DAY_CLOUDY);
+        define(803, "broken clouds", CLOUDY);
+        define(804, "overcast clouds", CLOUDY);
+
+        define(900, "tornado", TORNADO);
+        define(901, "tropical storm", STORM_SHOWERS);
+        define(902, "hurricane", HURRICANE);
+        define(903, "cold", SNOWFLAKE_COLD);
+        define(904, "hot", HOT);
+        define(905, "windy", WINDY);
+        define(906, "hail", HAIL);
+        define(951, "calm", DAY_SUNNY);
+        define(952, "light breeze", WINDY);
+        define(953, "gentle breeze", WINDY);
+        define(954, "moderate breeze", WINDY);
+        define(955, "fresh breeze", WINDY);
+        define(956, "strong breeze", WINDY);
+        define(957, "high wind, near gale", STRONG_WIND);
+        define(958, "gale", STRONG_WIND);
+        define(959, "severe gale", STRONG_WIND);
+        define(960, "storm", THUNDERSTORM);
+        define(961, "violent storm", THUNDERSTORM);
+        define(962, "hurricane", HURRICANE);
+
+        // Codes the table does not know yet fall back on the most general one of their group.
+        fillGroup(2, 211);
+        fillGroup(3, 301);
+        fillGroup(5, 501);
+        fillGroup(6, 601);
+        fillGroup(7, 701);
+        fillGroup(8, 802);
+    }
+
+    private final int mCode;
+    private final String mDescription;
+    private final String mIconGlyph;
+
+    private WeatherCondition(final int code, final String description, final char iconGlyph) {
+        mCode = code;
+        mDescription = description;
+        mIconGlyph = String.valueOf(iconGlyph);
+    }
+
+    /**
+     * The condition for a code. Unknown codes get the general condition of their group, if
+     * they belong to one, or else {@link #UNKNOWN}.
+     */
+    public static WeatherCondition forCode(final int code) {
+        if (code < 0 || code > MAXIMUM_CODE || CONDITIONS[code] == null) {
+            return UNKNOWN;
+        }
+
+        return CONDITIONS[code];
+    }
+
+    /**
+     * The Open Weather Map code of this condition. Conditions looked up by an unknown code have
+     * the code of the condition they fell back on.
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * Description in English, or null if the condition is unknown.
+     */
+    public String getDescription() {
+        return mDescription;
+    }
+
+    /**
+     * The icon in the Weather Icons font, as a string ready to be shown.
+     */
+    public String getIconGlyph() {
+        return mIconGlyph;
+    }
+
+    @Override
+    public String toString() {
+        return mCode + " " + mDescription;
+    }
+
+    private static void define(final int code, final String description, final char iconGlyph) {
+        CONDITIONS[code] = new WeatherCondition(code, description, iconGlyph);
+    }
+
+    private static void fillGroup(final int group, final int generalCode) {
+        for (int code = group * 100; code < (group + 1) * 100; code++) {
+            if (CONDITIONS[code] == null) {
+                CONDITIONS[code] = CONDITIONS[generalCode];
+            }
+        }
+    }
+}
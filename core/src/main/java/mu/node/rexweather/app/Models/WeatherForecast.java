@@ -3,13 +3,13 @@ package mu.node.rexweather.app.Models;
 public class WeatherForecast {
     private final String mLocationName;
     private final long mTimestamp;
-    private final String mDescription;
+    private final WeatherCondition mCondition;
     private final float mMinimumTemperature;
     private final float mMaximumTemperature;
 
     public WeatherForecast(final String locationName,
                            final long timestamp,
-                           final String description,
+                           final WeatherCondition condition,
                            final float minimumTemperature,
                            final float maximumTemperature) {
 
@@ -17,7 +17,7 @@ public class WeatherForecast {
         mTimestamp = timestamp;
         mMinimumTemperature = minimumTemperature;
         mMaximumTemperature = maximumTemperature;
-        mDescription = description;
+        mCondition = condition;
     }
 
     public String getLocationName() {
@@ -28,8 +28,12 @@ public class WeatherForecast {
         return mTimestamp;
     }
 
+    public WeatherCondition getCondition() {
+        return mCondition;
+    }
+
     public String getDescription() {
-        return mDescription;
+        return mCondition.getDescription();
     }
 
     public float getMinimumTemperature() {
@@ -0,0 +1,98 @@
+package mu.node.rexweather.app.Models;
+
+/**
+ * The current weather and forecasts for a location, as fetched together.
+ */
+public class WeatherSnapshot {
+    private final CurrentWeather mCurrentWeather;
+    private final ForecastSeries mWeatherForecasts;
+    private final HourlyForecast mHourlyForecast;
+    private final String mLocationCell;
+
+    public WeatherSnapshot(final CurrentWeather currentWeather,
+                           final ForecastSeries weatherForecasts) {
+        this(currentWeather, weatherForecasts, null, null);
+    }
+
+    /**
+     * A snapshot whose forecasts are the hourly ones.
+     */
+    public WeatherSnapshot(final CurrentWeather currentWeather,
+                           final HourlyForecast hourlyForecast) {
+        this(currentWeather, hourlyForecast.getHourlyForecasts(), hourlyForecast, null);
+    }
+
+    private WeatherSnapshot(final CurrentWeather currentWeather,
+                            final ForecastSeries weatherForecasts,
+                            final HourlyForecast hourlyForecast,
+                            final String locationCell) {
+        mCurrentWeather = currentWeather;
+        mWeatherForecasts = weatherForecasts;
+        mHourlyForecast = hourlyForecast;
+        mLocationCell = locationCell;
+    }
+
+    /**
+     * The current weather, or null if there is none.
+     */
+    public CurrentWeather getCurrentWeather() {
+        return mCurrentWeather;
+    }
+
+    public ForecastSeries getWeatherForecasts() {
+        return mWeatherForecasts;
+    }
+
+    public boolean isHourly() {
+        return mHourlyForecast != null;
+    }
+
+    /**
+     * The cache cell of the location the snapshot was fetched for, or null if not known. Parts
+     * fetched for one cell must not be combined with a snapshot of another.
+     */
+    public String getLocationCell() {
+        return mLocationCell;
+    }
+
+    public WeatherSnapshot withLocationCell(final String locationCell) {
+        return new WeatherSnapshot(mCurrentWeather, mWeatherForecasts, mHourlyForecast,
+                locationCell);
+    }
+
+    /**
+     * This snapshot with other current weather, e.g. as it arrives ahead of the forecasts.
+     */
+    public WeatherSnapshot withCurrentWeather(final CurrentWeather currentWeather) {
+        return new WeatherSnapshot(currentWeather, mWeatherForecasts, mHourlyForecast,
+                mLocationCell);
+    }
+
+    /**
+     * This snapshot with other daily forecasts.
+     */
+    public WeatherSnapshot withWeatherForecasts(final ForecastSeries weatherForecasts) {
+        return new WeatherSnapshot(mCurrentWeather, weatherForecasts, null, mLocationCell);
+    }
+
+    /**
+     * This snapshot with other hourly forecasts.
+     */
+    public WeatherSnapshot withHourlyForecast(final HourlyForecast hourlyForecast) {
+        return new WeatherSnapshot(mCurrentWeather, hourlyForecast.getHourlyForecasts(),
+                hourlyForecast, mLocationCell);
+    }
+
+    /**
+     * This snapshot with daily forecasts. Hourly snapshots use the daily forecasts derived from
+     * their hourly ones, without fetching anything.
+     */
+    public WeatherSnapshot toDaily() {
+        if (mHourlyForecast == null) {
+            return this;
+        }
+
+        return new WeatherSnapshot(mCurrentWeather, mHourlyForecast.getDailyForecasts(), null,
+                mLocationCell);
+    }
+}
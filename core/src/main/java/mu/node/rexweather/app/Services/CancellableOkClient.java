@@ -0,0 +1,187 @@
+package mu.node.rexweather.app.Services;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.BufferedSink;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * A Retrofit client on top of OkHttp whose calls stop as soon as their subscriber unsubscribes.
+ * <p/>
+ * Retrofit cancels an unsubscribed call by interrupting its thread, which does not wake a thread
+ * blocked reading from a socket. A call that timed out or lost a race would otherwise keep its
+ * thread until the read timeout. Calls made through {@link #cancellable(Func1)} are tagged, so
+ * that the client can cancel their OkHttp call on unsubscribe, which closes its connection. A
+ * call unsubscribed from before it got as far as the network is not made at all.
+ */
+public class CancellableOkClient implements Client {
+    /**
+     * Request header carrying a call's tag from the web service interface to the client. It is
+     * not sent to the server.
+     */
+    public static final String CALL_TAG_HEADER = "X-Call-Tag";
+
+    private final OkHttpClient mClient;
+    private final AtomicLong mLastCallTag = new AtomicLong();
+    private final ConcurrentHashMap<String, PendingCall> mPendingCalls =
+            new ConcurrentHashMap<>();
+
+    public CancellableOkClient(final OkHttpClient client) {
+        mClient = client;
+    }
+
+    /**
+     * Make a web service call that is cancelled on unsubscribe. The call is given a tag to pass
+     * on in the {@link #CALL_TAG_HEADER} header.
+     */
+    public <T> Observable<T> cancellable(final Func1<String, Observable<T>> call) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final String callTag = String.valueOf(mLastCallTag.incrementAndGet());
+                final PendingCall pendingCall = new PendingCall();
+                mPendingCalls.put(callTag, pendingCall);
+
+                return call.call(callTag).doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        mPendingCalls.remove(callTag);
+                        pendingCall.cancel();
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public Response execute(final Request request) throws IOException {
+        final com.squareup.okhttp.Request.Builder builder =
+                new com.squareup.okhttp.Request.Builder()
+                        .url(request.getUrl())
+                        .method(request.getMethod(), createRequestBody(request.getBody()));
+
+        String callTag = null;
+        for (final Header header : request.getHeaders()) {
+            final String value = header.getValue() != null ? header.getValue() : "";
+            if (CALL_TAG_HEADER.equals(header.getName())) {
+                callTag = value;
+            } else {
+                builder.addHeader(header.getName(), value);
+            }
+        }
+
+        final Call call = mClient.newCall(builder.build());
+        if (callTag != null) {
+            final PendingCall pendingCall = mPendingCalls.get(callTag);
+            if (pendingCall == null || !pendingCall.start(call)) {
+                throw new IOException("Canceled");
+            }
+        }
+
+        return parseResponse(call.execute());
+    }
+
+    private static RequestBody createRequestBody(final TypedOutput body) {
+        if (body == null) {
+            return null;
+        }
+
+        final MediaType mediaType = MediaType.parse(body.mimeType());
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return mediaType;
+            }
+
+            @Override
+            public long contentLength() {
+                return body.length();
+            }
+
+            @Override
+            public void writeTo(final BufferedSink sink) throws IOException {
+                body.writeTo(sink.outputStream());
+            }
+        };
+    }
+
+    private static Response parseResponse(final com.squareup.okhttp.Response response)
+            throws IOException {
+        final List<Header> headers = new ArrayList<>();
+        for (int i = 0; i < response.headers().size(); i++) {
+            headers.add(new Header(response.headers().name(i), response.headers().value(i)));
+        }
+
+        return new Response(response.request().urlString(), response.code(), response.message(),
+                headers, createResponseBody(response.body()));
+    }
+
+    private static TypedInput createResponseBody(final ResponseBody body) throws IOException {
+        final long length = body.contentLength();
+        if (length == 0) {
+            return null;
+        }
+
+        return new TypedInput() {
+            @Override
+            public String mimeType() {
+                final MediaType mediaType = body.contentType();
+                return mediaType != null ? mediaType.toString() : null;
+            }
+
+            @Override
+            public long length() {
+                return length;
+            }
+
+            @Override
+            public InputStream in() throws IOException {
+                return body.byteStream();
+            }
+        };
+    }
+
+    /**
+     * A tagged call, which may be cancelled before or after its OkHttp call is made.
+     */
+    private static class PendingCall {
+        private Call mCall;
+        private boolean mIsCanceled;
+
+        /**
+         * Remember the OkHttp call about to be made, unless the call was already cancelled.
+         */
+        synchronized boolean start(final Call call) {
+            mCall = call;
+            return !mIsCanceled;
+        }
+
+        synchronized void cancel() {
+            mIsCanceled = true;
+            if (mCall != null) {
+                // Does nothing if the call has already finished.
+                mCall.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package mu.node.rexweather.app.Services;
+
+/**
+ * Tracks the health of one endpoint, so that we stop sending it requests while it is failing.
+ * <p/>
+ * The circuit opens after a run of consecutive failures. While it is open requests should fail
+ * fast. Once the open period has passed a single trial request is let through: if it succeeds
+ * the circuit closes again, otherwise it stays open for another period.
+ */
+public class CircuitBreaker {
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Clock mClock;
+    private final int mFailureThreshold;
+    private final long mOpenMilliseconds;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAt;
+
+    /**
+     * @param clock Measures how long the circuit has been open, so should be
+     *              {@link Clock#MONOTONIC} outside tests.
+     */
+    public CircuitBreaker(final Clock clock, final int failureThreshold,
+                          final long openMilliseconds) {
+        mClock = clock;
+        mFailureThreshold = failureThreshold;
+        mOpenMilliseconds = openMilliseconds;
+    }
+
+    /**
+     * Whether a request may be made now. Callers that are allowed through must report the
+     * outcome with {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean allowRequest() {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            default:
+                // Let a trial request through once the circuit has been open long enough. A
+                // trial that never reports back is given up on after another open period.
+                final long now = mClock.currentTimeMillis();
+                if (now - mOpenedAt >= mOpenMilliseconds) {
+                    mState = State.HALF_OPEN;
+                    mOpenedAt = now;
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return mState != State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAt = mClock.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package mu.node.rexweather.app.Services;
+
+/**
+ * Raised instead of making a request while the circuit breaker for its endpoint is open. It is
+ * reported like the web service being unavailable.
+ */
+public class CircuitOpenException extends WebServiceException {
+    private static final long serialVersionUID = 1L;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    public CircuitOpenException(final String endpoint) {
+        super(SERVICE_UNAVAILABLE, "'" + endpoint + "' is failing, not retrying for now");
+    }
+}
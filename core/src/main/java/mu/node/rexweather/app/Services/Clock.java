@@ -0,0 +1,28 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of the current time, so that time dependent logic can be driven by a fake clock.
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Milliseconds since an arbitrary origin, which never go backwards when the wall clock is
+     * changed. Only meaningful for measuring how much time has passed.
+     */
+    Clock MONOTONIC = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        }
+    };
+
+    long currentTimeMillis();
+}
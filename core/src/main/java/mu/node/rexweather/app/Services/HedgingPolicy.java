@@ -0,0 +1,235 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Metrics.LatencyHistogram;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Hedges requests to a primary provider with the same request to a secondary one, to cut the
+ * tail latency a single slow response would cause.
+ * <p/>
+ * The secondary is only asked once the primary has taken longer than its observed 95th
+ * percentile latency for that endpoint, or has failed, so about one request in twenty is sent
+ * twice. The first result wins and the other request is cancelled. The request only fails if
+ * both do, with the primary's error.
+ */
+public class HedgingPolicy {
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    // Until enough latencies have been observed, hedge after a fixed delay.
+    private static final int MINIMUM_SAMPLES = 20;
+    private static final long DEFAULT_HEDGE_DELAY_MILLISECONDS = 2000;
+    private static final long MINIMUM_HEDGE_DELAY_MILLISECONDS = 50;
+
+    private final Scheduler mScheduler;
+    private final Map<String, LatencyHistogram> mLatencies = new HashMap<>();
+
+    public HedgingPolicy() {
+        this(Schedulers.computation());
+    }
+
+    public HedgingPolicy(final Scheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * How long to wait for the primary before asking the secondary.
+     */
+    public long getHedgeDelay(final String endpoint) {
+        final LatencyHistogram.Snapshot latencies = getLatencies(endpoint).snapshot();
+        if (latencies.getCount() < MINIMUM_SAMPLES) {
+            return DEFAULT_HEDGE_DELAY_MILLISECONDS;
+        }
+
+        return Math.max(MINIMUM_HEDGE_DELAY_MILLISECONDS,
+                latencies.getPercentile(HEDGE_PERCENTILE));
+    }
+
+    /**
+     * Race a request to the primary against the same request to the secondary, started late.
+     * Both requests must be cold, and are expected to deliver a single result.
+     */
+    public <T> Observable<T> hedge(final String endpoint,
+                                   final Observable<T> primary,
+                                   final Observable<T> secondary) {
+        final LatencyHistogram latencies = getLatencies(endpoint);
+
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> subscriber) {
+                new Race<T>(subscriber, latencies).start(primary, secondary,
+                        getHedgeDelay(endpoint));
+            }
+        });
+    }
+
+    private synchronized LatencyHistogram getLatencies(final String endpoint) {
+        LatencyHistogram latencies = mLatencies.get(endpoint);
+        if (latencies == null) {
+            latencies = new LatencyHistogram();
+            mLatencies.put(endpoint, latencies);
+        }
+        return latencies;
+    }
+
+    /**
+     * The state of one hedged request. All of it is guarded by the race's lock, but results are
+     * delivered outside of it.
+     */
+    private class Race<T> {
+        private final Subscriber<? super T> mSubscriber;
+        private final LatencyHistogram mPrimaryLatencies;
+        private final CompositeSubscription mAttempts = new CompositeSubscription();
+        private final Scheduler.Worker mHedgeTimer = mScheduler.createWorker();
+        private final long mStartTime = mScheduler.now();
+        private final Attempt mPrimaryAttempt = new Attempt(true);
+
+        private Observable<T> mSecondary;
+        private Attempt mSecondaryAttempt;
+        private int mPendingAttempts = 1;
+        private Throwable mPrimaryError;
+        private Attempt mWinner;
+
+        Race(final Subscriber<? super T> subscriber, final LatencyHistogram primaryLatencies) {
+            mSubscriber = subscriber;
+            mPrimaryLatencies = primaryLatencies;
+            mAttempts.add(mHedgeTimer);
+            mAttempts.add(mPrimaryAttempt);
+            subscriber.add(mAttempts);
+        }
+
+        void start(final Observable<T> primary, final Observable<T> secondary,
+                   final long hedgeDelayMilliseconds) {
+            synchronized (this) {
+                mSecondary = secondary;
+            }
+
+            mHedgeTimer.schedule(new Action0() {
+                @Override
+                public void call() {
+                    startSecondary();
+                }
+            }, hedgeDelayMilliseconds, TimeUnit.MILLISECONDS);
+
+            primary.unsafeSubscribe(mPrimaryAttempt);
+        }
+
+        private void startSecondary() {
+            final Attempt attempt;
+            synchronized (this) {
+                if (mSecondaryAttempt != null || mWinner != null) {
+                    return;
+                }
+
+                mSecondaryAttempt = attempt = new Attempt(false);
+                mPendingAttempts++;
+            }
+
+            mAttempts.add(attempt);
+            mSecondary.unsafeSubscribe(attempt);
+        }
+
+        /**
+         * Whether an attempt's result is to be passed on. The first attempt with a result wins
+         * the race, and the other attempt is cancelled.
+         */
+        private synchronized boolean isWinner(final Attempt attempt) {
+            if (mWinner != null) {
+                return mWinner == attempt;
+            }
+
+            mWinner = attempt;
+            mHedgeTimer.unsubscribe();
+
+            // The primary took at least this long even if it lost, so count it rather than let
+            // only its fast responses set the delay.
+            if (mPrimaryError == null) {
+                mPrimaryLatencies.record(mScheduler.now() - mStartTime);
+            }
+
+            final Attempt loser = attempt == mPrimaryAttempt
+                                  ? mSecondaryAttempt
+                                  : mPrimaryAttempt;
+            if (loser != null) {
+                loser.unsubscribe();
+            }
+
+            return true;
+        }
+
+        private synchronized boolean hasWon(final Attempt attempt) {
+            return mWinner == attempt;
+        }
+
+        private void onFailed(final Attempt attempt, final Throwable error) {
+            final boolean isHedgingNow;
+            final boolean isLost;
+            final Throwable primaryError;
+            synchronized (this) {
+                if (mWinner != null) {
+                    return;
+                }
+
+                mPendingAttempts--;
+                if (attempt == mPrimaryAttempt) {
+                    mPrimaryError = error;
+                }
+
+                isHedgingNow = attempt == mPrimaryAttempt && mSecondaryAttempt == null;
+                isLost = !isHedgingNow && mPendingAttempts == 0;
+                primaryError = mPrimaryError;
+            }
+
+            // There is no point waiting any longer once the primary has failed.
+            if (isHedgingNow) {
+                mHedgeTimer.unsubscribe();
+                startSecondary();
+            } else if (isLost) {
+                mSubscriber.onError(primaryError);
+            }
+        }
+
+        private class Attempt extends Subscriber<T> {
+            private final boolean mIsPrimary;
+
+            Attempt(final boolean isPrimary) {
+                mIsPrimary = isPrimary;
+            }
+
+            @Override
+            public void onNext(final T item) {
+                if (isWinner(this)) {
+                    mSubscriber.onNext(item);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (hasWon(this)) {
+                    mSubscriber.onCompleted();
+                } else {
+                    onFailed(this, new NoSuchElementException("No result from the "
+                            + (mIsPrimary ? "primary" : "secondary")));
+                }
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                if (hasWon(this)) {
+                    mSubscriber.onError(error);
+                } else {
+                    onFailed(this, error);
+                }
+            }
+        }
+    }
+}
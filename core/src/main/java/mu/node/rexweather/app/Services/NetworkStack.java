@@ -0,0 +1,149 @@
+package mu.node.rexweather.app.Services;
+
+import com.squareup.okhttp.CacheControl;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mu.node.rexweather.app.Metrics.HttpTimingInterceptor;
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * The networking stack shared by everything that talks to the web: a single HTTP client with
+ * a keep-alive connection pool and response cache, and a bounded pool of I/O threads.
+ * <p/>
+ * Building these once per process lets every refresh reuse warm sockets and threads instead of
+ * paying for DNS lookups, connection set-up and thread creation each time.
+ * <p/>
+ * Requests someone is waiting for have their threads to themselves. Background work, i.e.
+ * revalidating stale cached responses and warming up connections, runs on a separate single
+ * thread so that it can never hold up a request.
+ */
+public class NetworkStack {
+    public static final int DEFAULT_IO_THREAD_COUNT = 4;
+    private static final int BACKGROUND_THREAD_COUNT = 1;
+    private static final long KEEP_ALIVE_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 15;
+
+    // Open Weather Map's free plan allows 60 calls a minute per API key.
+    private static final double DEFAULT_CALLS_PER_SECOND = 1;
+    private static final int DEFAULT_BURST_SIZE = 10;
+    private static final int DEFAULT_MAXIMUM_QUEUE_LENGTH = 10;
+
+    private final OkHttpClient mHttpClient;
+    private final ExecutorService mIoExecutor;
+    private final Scheduler mIoScheduler;
+    private final ExecutorService mBackgroundExecutor;
+    private final RateLimiter mRateLimiter;
+
+    public NetworkStack(final File cacheDirectory, final WeatherMetrics metrics) {
+        this(cacheDirectory, metrics, DEFAULT_IO_THREAD_COUNT,
+                new RateLimiter(DEFAULT_CALLS_PER_SECOND, DEFAULT_BURST_SIZE,
+                        DEFAULT_MAXIMUM_QUEUE_LENGTH, Clock.MONOTONIC, Schedulers.computation(),
+                        metrics));
+    }
+
+    /**
+     * @param ioThreadCount How many blocking requests may run at once. Each thread keeps an idle
+     *                      connection alive for reuse.
+     * @param rateLimiter   Limits the calls made to the web service. Background revalidations
+     *                      take their permits at {@link RateLimiter.Priority#BACKGROUND}.
+     */
+    public NetworkStack(final File cacheDirectory, final WeatherMetrics metrics,
+                        final int ioThreadCount, final RateLimiter rateLimiter) {
+        mRateLimiter = rateLimiter;
+        mIoExecutor = Executors.newFixedThreadPool(ioThreadCount, namedThreads("weather-io-"));
+        mIoScheduler = Schedulers.from(mIoExecutor);
+        mBackgroundExecutor = Executors.newFixedThreadPool(BACKGROUND_THREAD_COUNT,
+                namedThreads("weather-background-"));
+
+        mHttpClient = new OkHttpClient();
+        mHttpClient.setConnectionPool(new ConnectionPool(ioThreadCount + BACKGROUND_THREAD_COUNT,
+                KEEP_ALIVE_MILLISECONDS));
+        // Only calls nobody waits for are enqueued, namely background revalidations.
+        mHttpClient.setDispatcher(new Dispatcher(mBackgroundExecutor));
+        mHttpClient.setConnectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        mHttpClient.setReadTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        new WeatherResponseCache(cacheDirectory, rateLimiter).install(mHttpClient);
+        new HttpTimingInterceptor(metrics).install(mHttpClient);
+    }
+
+    public OkHttpClient getHttpClient() {
+        return mHttpClient;
+    }
+
+    /**
+     * The rate limiter for calls to the web service, shared with background revalidations so
+     * that together they stay within the quota.
+     */
+    public RateLimiter getRateLimiter() {
+        return mRateLimiter;
+    }
+
+    /**
+     * Executor for blocking HTTP requests that someone is waiting for. Not for disk I/O or
+     * background work, which would delay those requests.
+     */
+    public ExecutorService getIoExecutor() {
+        return mIoExecutor;
+    }
+
+    /**
+     * Scheduler backed by the same bounded pool as {@link #getIoExecutor()}.
+     */
+    public Scheduler getIoScheduler() {
+        return mIoScheduler;
+    }
+
+    /**
+     * Resolve a host and open a connection to it in the background, so that the first real
+     * request finds a warm connection in the pool.
+     */
+    public void prewarm(final String url) {
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Request request = new Request.Builder()
+                        .url(url)
+                        .head()
+                        .cacheControl(CacheControl.FORCE_NETWORK)
+                        .build();
+
+                try {
+                    final Response response = mHttpClient.newCall(request).execute();
+                    response.body().close();
+                } catch (IOException ignored) {
+                    // We are offline or the host is down; the real request will find out.
+                }
+            }
+        });
+    }
+
+    private static ThreadFactory namedThreads(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger mThreadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable,
+                        namePrefix + mThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
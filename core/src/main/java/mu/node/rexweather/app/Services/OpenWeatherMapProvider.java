@@ -0,0 +1,172 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.List;
+
+import mu.node.rexweather.app.Metrics.TimingConverter;
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+
+import retrofit.RequestInterceptor;
+import retrofit.RestAdapter;
+import retrofit.http.GET;
+import retrofit.http.Header;
+import retrofit.http.Query;
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Fetches the weather from the Open Weather Map web service, or any server that speaks its API.
+ */
+public class OpenWeatherMapProvider implements WeatherProvider {
+    // We are implementing against version 2.5 of the Open Weather Map web service.
+    public static final String WEB_SERVICE_BASE_URL = "http://api.openweathermap.org/data/2.5";
+
+    private final String mName;
+    private final CancellableOkClient mClient;
+    private final RestAdapter mRestAdapter;
+    private final OpenWeatherMapWebService mWebService;
+
+    public OpenWeatherMapProvider(final NetworkStack networkStack, final WeatherMetrics metrics) {
+        this("openweathermap", WEB_SERVICE_BASE_URL, networkStack, metrics);
+    }
+
+    /**
+     * @param endpoint Base URL of the web service, e.g. a mirror or a local stand-in server.
+     */
+    public OpenWeatherMapProvider(final String name,
+                                  final String endpoint,
+                                  final NetworkStack networkStack,
+                                  final WeatherMetrics metrics) {
+        mName = name;
+        mClient = new CancellableOkClient(networkStack.getHttpClient());
+
+        RequestInterceptor requestInterceptor = new RequestInterceptor() {
+            @Override
+            public void intercept(RequestInterceptor.RequestFacade request) {
+                request.addHeader("Accept", "application/json");
+            }
+        };
+
+        mRestAdapter = new RestAdapter.Builder()
+                .setEndpoint(endpoint)
+                .setClient(mClient)
+                .setExecutors(networkStack.getIoExecutor(), null)
+                .setConverter(new TimingConverter(new WeatherJsonConverter(), metrics))
+                .setRequestInterceptor(requestInterceptor)
+                .setLogLevel(RestAdapter.LogLevel.FULL)
+                .build();
+
+        mWebService = mRestAdapter.create(OpenWeatherMapWebService.class);
+    }
+
+    /**
+     * How much of each request and response to log. Everything is logged by default.
+     */
+    public void setLogLevel(final RestAdapter.LogLevel logLevel) {
+        mRestAdapter.setLogLevel(logLevel);
+    }
+
+    private interface OpenWeatherMapWebService {
+        // A null cache control leaves the request to the default caching rules. The call tag
+        // lets the client cancel the call once nobody is waiting for it.
+        @GET("/weather?units=metric")
+        Observable<CurrentWeather> fetchCurrentWeather(
+                @Query("lon") double longitude, @Query("lat") double latitude,
+                @Header("Cache-Control") String cacheControl,
+                @Header(CancellableOkClient.CALL_TAG_HEADER) String callTag);
+
+        @GET("/forecast/daily?units=metric&cnt=7")
+        Observable<ForecastSeries> fetchWeatherForecasts(
+                @Query("lon") double longitude, @Query("lat") double latitude,
+                @Header("Cache-Control") String cacheControl,
+                @Header(CancellableOkClient.CALL_TAG_HEADER) String callTag);
+
+        @GET("/forecast?units=metric")
+        Observable<HourlyForecast> fetchHourlyForecasts(
+                @Query("lon") double longitude, @Query("lat") double latitude,
+                @Header("Cache-Control") String cacheControl,
+                @Header(CancellableOkClient.CALL_TAG_HEADER) String callTag);
+
+        @GET("/group?units=metric")
+        Observable<List<CurrentWeather>> fetchCurrentWeatherGroup(
+                @Query("id") String cityIds,
+                @Header(CancellableOkClient.CALL_TAG_HEADER) String callTag);
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public Observable<CurrentWeather> fetchCurrentWeather(final double longitude,
+                                                          final double latitude,
+                                                          final String cacheControl) {
+        return mClient.cancellable(new Func1<String, Observable<CurrentWeather>>() {
+            @Override
+            public Observable<CurrentWeather> call(final String callTag) {
+                return mWebService.fetchCurrentWeather(longitude, latitude, cacheControl, callTag);
+            }
+        }).onErrorResumeNext(OpenWeatherMapProvider.<CurrentWeather>unwrapWebServiceErrors());
+    }
+
+    @Override
+    public Observable<ForecastSeries> fetchWeatherForecasts(final double longitude,
+                                                            final double latitude,
+                                                            final String cacheControl) {
+        return mClient.cancellable(new Func1<String, Observable<ForecastSeries>>() {
+            @Override
+            public Observable<ForecastSeries> call(final String callTag) {
+                return mWebService.fetchWeatherForecasts(longitude, latitude, cacheControl,
+                        callTag);
+            }
+        }).onErrorResumeNext(OpenWeatherMapProvider.<ForecastSeries>unwrapWebServiceErrors());
+    }
+
+    @Override
+    public Observable<HourlyForecast> fetchHourlyForecasts(final double longitude,
+                                                           final double latitude,
+                                                           final String cacheControl) {
+        return mClient.cancellable(new Func1<String, Observable<HourlyForecast>>() {
+            @Override
+            public Observable<HourlyForecast> call(final String callTag) {
+                return mWebService.fetchHourlyForecasts(longitude, latitude, cacheControl,
+                        callTag);
+            }
+        }).onErrorResumeNext(OpenWeatherMapProvider.<HourlyForecast>unwrapWebServiceErrors());
+    }
+
+    /**
+     * Fetch the current weather for up to 20 Open Weather Map city IDs, separated by commas.
+     */
+    public Observable<List<CurrentWeather>> fetchCurrentWeatherGroup(final String cityIds) {
+        return mClient.cancellable(new Func1<String, Observable<List<CurrentWeather>>>() {
+            @Override
+            public Observable<List<CurrentWeather>> call(final String callTag) {
+                return mWebService.fetchCurrentWeatherGroup(cityIds, callTag);
+            }
+        }).onErrorResumeNext(
+                OpenWeatherMapProvider.<List<CurrentWeather>>unwrapWebServiceErrors());
+    }
+
+    /**
+     * Errors reported by the web service surface from Retrofit as conversion errors. Pass them
+     * on as the WebServiceException raised by the converter.
+     */
+    private static <T> Func1<Throwable, Observable<T>> unwrapWebServiceErrors() {
+        return new Func1<Throwable, Observable<T>>() {
+            @Override
+            public Observable<T> call(final Throwable error) {
+                for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof WebServiceException) {
+                        return Observable.error(cause);
+                    }
+                }
+
+                return Observable.error(error);
+            }
+        };
+    }
+}
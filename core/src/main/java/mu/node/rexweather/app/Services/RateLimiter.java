@@ -0,0 +1,252 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Token bucket rate limiter with priorities. Permits are added at a steady rate up to a burst
+ * size, and each call takes one.
+ * <p/>
+ * A call that finds the bucket empty waits in the queue for its priority. As permits are added
+ * they go to the most urgent call waiting, and calls of the same priority go ahead in order, so
+ * background and bulk calls can never hold up a refresh the user is waiting for by longer than
+ * it takes to add one permit. Foreground calls always wait their turn. Other calls are shed
+ * with a {@link RequestShedException} once their queue is full.
+ * <p/>
+ * How long calls wait, how many are waiting and how many are shed is recorded per priority, in
+ * queues named "ratelimit/" and the priority.
+ */
+public class RateLimiter {
+
+    /**
+     * Classes of calls, most urgent first.
+     */
+    public enum Priority {
+        FOREGROUND,     // Refreshes the user is waiting for.
+        BACKGROUND,     // Refreshes ahead of the user looking, e.g. scheduled ones.
+        BULK            // Runs over many locations at once.
+    }
+
+    private final Clock mClock;
+    private final Scheduler mScheduler;
+    private final WeatherMetrics mMetrics;
+    private final double mPermitsPerMillisecond;
+    private final double mBurstSize;
+    private final int mMaximumQueueLength;
+    private final Map<Priority, ArrayDeque<Waiter>> mQueues = new EnumMap<>(Priority.class);
+    private final Map<Priority, String> mQueueNames = new EnumMap<>(Priority.class);
+
+    private double mPermits;
+    private long mLastRefillTime;
+    private boolean mIsDrainScheduled;
+
+    /**
+     * @param maximumQueueLength How many background or bulk calls may wait at a time, each.
+     * @param clock Measures the time between refills, so should be {@link Clock#MONOTONIC}
+     *              outside tests.
+     */
+    public RateLimiter(final double permitsPerSecond, final int burstSize,
+                       final int maximumQueueLength, final Clock clock,
+                       final Scheduler scheduler, final WeatherMetrics metrics) {
+        if (permitsPerSecond <= 0 || burstSize < 1 || maximumQueueLength < 0) {
+            throw new IllegalArgumentException("A rate limiter needs a positive rate and burst");
+        }
+
+        mClock = clock;
+        mScheduler = scheduler;
+        mMetrics = metrics;
+        mPermitsPerMillisecond = permitsPerSecond / TimeUnit.SECONDS.toMillis(1);
+        mBurstSize = burstSize;
+        mMaximumQueueLength = maximumQueueLength;
+        mPermits = burstSize;
+        mLastRefillTime = clock.currentTimeMillis();
+
+        for (final Priority priority : Priority.values()) {
+            mQueues.put(priority, new ArrayDeque<Waiter>());
+            mQueueNames.put(priority, "ratelimit/" + priority.name().toLowerCase(Locale.US));
+        }
+    }
+
+    /**
+     * Delay each subscription to an Observable until it has a permit. Unsubscribing while
+     * waiting gives up the place in the queue.
+     */
+    public <T> Observable.Transformer<T, T> limit(final Priority priority) {
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> request) {
+                return Observable.create(new Observable.OnSubscribe<T>() {
+                    @Override
+                    public void call(final Subscriber<? super T> subscriber) {
+                        acquire(new Waiter(priority, subscriber, new Action0() {
+                            @Override
+                            public void call() {
+                                request.unsafeSubscribe(subscriber);
+                            }
+                        }));
+                    }
+                });
+            }
+        };
+    }
+
+    private void acquire(final Waiter waiter) {
+        final boolean isGranted;
+        final boolean isShed;
+        synchronized (this) {
+            refill();
+
+            final ArrayDeque<Waiter> queue = mQueues.get(waiter.mPriority);
+            isGranted = mPermits >= 1 && !isAnyoneWaiting(waiter.mPriority);
+            isShed = !isGranted && waiter.mPriority != Priority.FOREGROUND
+                    && queue.size() >= mMaximumQueueLength;
+
+            if (isGranted) {
+                mPermits -= 1;
+            } else if (!isShed) {
+                queue.add(waiter);
+                mMetrics.recordQueueDepth(mQueueNames.get(waiter.mPriority), queue.size());
+                scheduleDrain();
+            }
+        }
+
+        if (isGranted) {
+            mMetrics.recordQueueWait(mQueueNames.get(waiter.mPriority), 0);
+            waiter.start();
+        } else if (isShed) {
+            mMetrics.recordShed(mQueueNames.get(waiter.mPriority));
+            waiter.mSubscriber.onError(new RequestShedException(waiter.mPriority));
+        } else {
+            waiter.mSubscriber.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    cancel(waiter);
+                }
+            }));
+        }
+    }
+
+    private synchronized void cancel(final Waiter waiter) {
+        final ArrayDeque<Waiter> queue = mQueues.get(waiter.mPriority);
+        if (queue.remove(waiter)) {
+            mMetrics.recordQueueDepth(mQueueNames.get(waiter.mPriority), queue.size());
+        }
+    }
+
+    /**
+     * Hand the permits added since the last drain to the calls waiting for them, most urgent
+     * first, and start those calls outside the lock.
+     */
+    private void drain() {
+        final List<Waiter> grantedWaiters = new ArrayList<>();
+        final long now;
+        synchronized (this) {
+            mIsDrainScheduled = false;
+            refill();
+            now = mLastRefillTime;
+
+            for (final Priority priority : Priority.values()) {
+                final ArrayDeque<Waiter> queue = mQueues.get(priority);
+                if (queue.isEmpty()) {
+                    continue;
+                }
+
+                while (mPermits >= 1 && !queue.isEmpty()) {
+                    grantedWaiters.add(queue.poll());
+                    mPermits -= 1;
+                }
+                mMetrics.recordQueueDepth(mQueueNames.get(priority), queue.size());
+            }
+
+            scheduleDrain();
+        }
+
+        for (final Waiter waiter : grantedWaiters) {
+            mMetrics.recordQueueWait(mQueueNames.get(waiter.mPriority),
+                    Math.max(0, now - waiter.mEnqueueTime));
+            waiter.start();
+        }
+    }
+
+    /**
+     * Drain the queues once the next permit has been added, unless a drain is already due or
+     * nobody is waiting.
+     */
+    private void scheduleDrain() {
+        if (mIsDrainScheduled || !isAnyoneWaiting(Priority.BULK)) {
+            return;
+        }
+
+        mIsDrainScheduled = true;
+        final long delay = Math.max(0, (long) Math.ceil((1 - mPermits) / mPermitsPerMillisecond));
+        final Scheduler.Worker worker = mScheduler.createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                try {
+                    drain();
+                } finally {
+                    worker.unsubscribe();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether any call of the given priority, or a more urgent one, is waiting.
+     */
+    private boolean isAnyoneWaiting(final Priority lowestPriority) {
+        for (final Priority priority : Priority.values()) {
+            if (!mQueues.get(priority).isEmpty()) {
+                return true;
+            }
+            if (priority == lowestPriority) {
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    private void refill() {
+        final long now = mClock.currentTimeMillis();
+        // Should the clock ever step back, add nothing rather than take permits away.
+        mPermits = Math.min(mBurstSize,
+                mPermits + Math.max(0, now - mLastRefillTime) * mPermitsPerMillisecond);
+        mLastRefillTime = now;
+    }
+
+    /**
+     * A call waiting for a permit.
+     */
+    private class Waiter {
+        final Priority mPriority;
+        final Subscriber<?> mSubscriber;
+        final Action0 mStart;
+        final long mEnqueueTime = mClock.currentTimeMillis();
+
+        Waiter(final Priority priority, final Subscriber<?> subscriber, final Action0 start) {
+            mPriority = priority;
+            mSubscriber = subscriber;
+            mStart = start;
+        }
+
+        void start() {
+            if (!mSubscriber.isUnsubscribed()) {
+                mStart.call();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Helpers.WeatherSnapshotDiff;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+import retrofit.RetrofitError;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+/**
+ * Refreshes the weather in the background at a fixed cadence, so that fresh data is usually
+ * waiting by the time the user looks.
+ * <p/>
+ * Refreshes are skipped while the last snapshot is still fresh, and back off exponentially
+ * while the web service fails. A refreshed snapshot is only passed on if it would change what the
+ * list shows.
+ */
+public class RefreshScheduler {
+    public static final long DEFAULT_CADENCE_MILLISECONDS = TimeUnit.MINUTES.toMillis(30);
+    private static final long INITIAL_BACKOFF_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAXIMUM_BACKOFF_MILLISECONDS = TimeUnit.HOURS.toMillis(2);
+
+    private final Func0<Observable<WeatherSnapshot>> mRefresh;
+    private final Action1<WeatherSnapshot> mOnUpdated;
+    private final Clock mClock;
+    private final Scheduler mScheduler;
+    private final long mCadenceMilliseconds;
+
+    private Scheduler.Worker mWorker;
+    private Subscription mRefreshSubscription;
+    private WeatherSnapshot mLastSnapshot;
+    private long mLastSnapshotTime;
+    private int mFailureCount;
+
+    /**
+     * @param refresh   Creates an Observable that fetches a new snapshot when subscribed to.
+     * @param onUpdated Called with each refreshed snapshot that differs from the last one, on
+     *                  whichever thread the refresh delivered it.
+     * @param clock     Measures how old the last snapshot is, so should be
+     *                  {@link Clock#MONOTONIC} outside tests.
+     */
+    public RefreshScheduler(final Func0<Observable<WeatherSnapshot>> refresh,
+                            final Action1<WeatherSnapshot> onUpdated,
+                            final Clock clock,
+                            final Scheduler scheduler,
+                            final long cadenceMilliseconds) {
+        mRefresh = refresh;
+        mOnUpdated = onUpdated;
+        mClock = clock;
+        mScheduler = scheduler;
+        mCadenceMilliseconds = cadenceMilliseconds;
+    }
+
+    /**
+     * Refresh a cadence from now, and from then on. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (mWorker == null) {
+            mWorker = mScheduler.createWorker();
+            scheduleRefresh(mCadenceMilliseconds);
+        }
+    }
+
+    public synchronized void stop() {
+        if (mWorker != null) {
+            mWorker.unsubscribe();
+            mWorker = null;
+        }
+
+        if (mRefreshSubscription != null) {
+            mRefreshSubscription.unsubscribe();
+            mRefreshSubscription = null;
+        }
+    }
+
+    /**
+     * Tell the scheduler about a snapshot fetched and shown elsewhere, e.g. by a refresh the
+     * user asked for. It becomes the baseline later refreshes are compared against.
+     */
+    public synchronized void onSnapshotShown(final WeatherSnapshot snapshot) {
+        mLastSnapshot = snapshot;
+        mLastSnapshotTime = mClock.currentTimeMillis();
+        mFailureCount = 0;
+    }
+
+    private synchronized void scheduleRefresh(final long delayMilliseconds) {
+        if (mWorker == null) {
+            return;
+        }
+
+        mWorker.schedule(new Action0() {
+            @Override
+            public void call() {
+                refresh();
+            }
+        }, delayMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void refresh() {
+        if (mWorker == null) {
+            return;
+        }
+
+        // Wait out the rest of the cadence if something else refreshed in the meantime. Should
+        // the clock ever step back, wait out no more than a cadence from now.
+        final long now = mClock.currentTimeMillis();
+        mLastSnapshotTime = Math.min(mLastSnapshotTime, now);
+        final long age = now - mLastSnapshotTime;
+        if (mLastSnapshot != null && age < mCadenceMilliseconds) {
+            scheduleRefresh(mCadenceMilliseconds - age);
+            return;
+        }
+
+        mRefreshSubscription = mRefresh.call().take(1).subscribe(new Subscriber<WeatherSnapshot>() {
+            @Override
+            public void onNext(final WeatherSnapshot snapshot) {
+                publish(snapshot);
+            }
+
+            @Override
+            public void onCompleted() {
+                scheduleRefresh(mCadenceMilliseconds);
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                scheduleRefresh(getRetryDelay(error));
+            }
+        });
+    }
+
+    private synchronized void publish(final WeatherSnapshot snapshot) {
+        final boolean isChanged = mLastSnapshot == null
+                || !WeatherSnapshotDiff.compute(mLastSnapshot, snapshot, false).isEmpty();
+
+        mLastSnapshot = snapshot;
+        mLastSnapshotTime = mClock.currentTimeMillis();
+        mFailureCount = 0;
+
+        if (isChanged) {
+            mOnUpdated.call(snapshot);
+        }
+    }
+
+    private synchronized long getRetryDelay(final Throwable error) {
+        // Only back off from the web service; other failures, e.g. having no location fix yet,
+        // are retried at the usual cadence.
+        if (!(error instanceof RetrofitError || error instanceof WebServiceException)) {
+            return mCadenceMilliseconds;
+        }
+
+        final long backoff = INITIAL_BACKOFF_MILLISECONDS << Math.min(mFailureCount, 16);
+        mFailureCount++;
+        return Math.min(backoff, MAXIMUM_BACKOFF_MILLISECONDS);
+    }
+}
@@ -0,0 +1,55 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+/**
+ * Coalesces concurrent subscriptions for the same request onto a single in-flight Observable.
+ * <p/>
+ * The shared request is only cancelled once its last subscriber unsubscribes, and is forgotten
+ * as soon as it terminates so that later subscriptions start a fresh request. Its latest item
+ * is replayed, so that a subscriber joining after the result arrived, but before the request
+ * completed, still receives it.
+ */
+public class RequestCoalescer {
+    private final ConcurrentHashMap<String, Observable<?>> mInFlightRequests =
+            new ConcurrentHashMap<>();
+
+    public <T> Observable<T> coalesce(final String key, final Observable<T> request) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                @SuppressWarnings("unchecked")
+                final Observable<T> inFlightRequest = (Observable<T>) mInFlightRequests.get(key);
+                if (inFlightRequest != null) {
+                    return inFlightRequest;
+                }
+
+                final AtomicReference<Observable<T>> sharedRequestReference =
+                        new AtomicReference<>();
+                final Action0 forgetRequest = new Action0() {
+                    @Override
+                    public void call() {
+                        mInFlightRequests.remove(key, sharedRequestReference.get());
+                    }
+                };
+
+                final Observable<T> sharedRequest = request
+                        .doOnTerminate(forgetRequest)
+                        .doOnUnsubscribe(forgetRequest)
+                        .replay(1)
+                        .refCount();
+                sharedRequestReference.set(sharedRequest);
+
+                @SuppressWarnings("unchecked")
+                final Observable<T> concurrentRequest =
+                        (Observable<T>) mInFlightRequests.putIfAbsent(key, sharedRequest);
+                return concurrentRequest != null ? concurrentRequest : sharedRequest;
+            }
+        });
+    }
+}
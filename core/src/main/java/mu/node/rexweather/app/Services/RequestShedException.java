@@ -0,0 +1,17 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.Locale;
+
+/**
+ * Raised instead of making a request when too many requests of its priority are already waiting
+ * for the rate limiter. It is reported like the web service throttling us.
+ */
+public class RequestShedException extends WebServiceException {
+    private static final long serialVersionUID = 1L;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    public RequestShedException(final RateLimiter.Priority priority) {
+        super(TOO_MANY_REQUESTS, "too many " + priority.name().toLowerCase(Locale.US)
+                + " requests waiting, dropped this one");
+    }
+}
@@ -0,0 +1,210 @@
+package mu.node.rexweather.app.Services;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import retrofit.RetrofitError;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Guards calls to the web service with a timeout per attempt, a bounded number of retries and a
+ * circuit breaker per endpoint.
+ * <p/>
+ * Retries are spaced with "decorrelated jitter": each delay is drawn at random between the base
+ * delay and three times the previous delay, so that clients which failed together do not retry
+ * together. Only transient failures are retried and counted against the circuit breaker: network
+ * errors, timeouts, throttling and server errors. Other errors mean the service is up, and are
+ * passed on straight away, as are calls failed fast by an open circuit or a busy rate limiter.
+ */
+public class ResiliencePolicy {
+    private static final int MAXIMUM_RETRIES = 2;
+    private static final long BASE_RETRY_DELAY_MILLISECONDS = 500;
+    private static final long MAXIMUM_RETRY_DELAY_MILLISECONDS = TimeUnit.SECONDS.toMillis(8);
+
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final Clock mClock;
+    private final Scheduler mScheduler;
+    private final Random mRandom;
+    private final Map<String, CircuitBreaker> mCircuitBreakers = new HashMap<>();
+
+    public ResiliencePolicy() {
+        this(Clock.MONOTONIC, Schedulers.computation(), new Random());
+    }
+
+    public ResiliencePolicy(final Clock clock, final Scheduler scheduler, final Random random) {
+        mClock = clock;
+        mScheduler = scheduler;
+        mRandom = random;
+    }
+
+    public synchronized CircuitBreaker getCircuitBreaker(final String endpoint) {
+        CircuitBreaker circuitBreaker = mCircuitBreakers.get(endpoint);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(mClock, CIRCUIT_FAILURE_THRESHOLD,
+                    CIRCUIT_OPEN_MILLISECONDS);
+            mCircuitBreakers.put(endpoint, circuitBreaker);
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Apply the policy to calls to an endpoint. The request must be cold, so that each retry
+     * makes a new call. While the endpoint's circuit is open the call fails fast with a
+     * {@link CircuitOpenException}.
+     * <p/>
+     * An attempt that times out is unsubscribed from, and fails with a
+     * {@link WebServiceTimeoutException}. The request should stop its call then, as
+     * {@link OpenWeatherMapProvider}'s do, or retries pile up on threads still waiting for it.
+     */
+    public <T> Observable.Transformer<T, T> guard(final String endpoint,
+                                                 final long timeoutMilliseconds) {
+        return guard(endpoint, timeoutMilliseconds, new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> attempt) {
+                return attempt;
+            }
+        });
+    }
+
+    /**
+     * Apply the policy, admitting each attempt, retries included, through the given transformer,
+     * e.g. a {@link RateLimiter}'s. An attempt's timeout only starts once it has been admitted.
+     * Attempts are not admitted at all while the circuit is open.
+     */
+    public <T> Observable.Transformer<T, T> guard(final String endpoint,
+                                                 final long timeoutMilliseconds,
+                                                 final Observable.Transformer<T, T> admission) {
+        final CircuitBreaker circuitBreaker = getCircuitBreaker(endpoint);
+
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> request) {
+                final Observable<T> attempt = Observable.defer(new Func0<Observable<T>>() {
+                    @Override
+                    public Observable<T> call() {
+                        if (!circuitBreaker.allowRequest()) {
+                            return Observable.error(new CircuitOpenException(endpoint));
+                        }
+
+                        return request
+                                .timeout(timeoutMilliseconds, TimeUnit.MILLISECONDS,
+                                        timedOut(endpoint, timeoutMilliseconds), mScheduler)
+                                .doOnCompleted(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        circuitBreaker.onSuccess();
+                                    }
+                                })
+                                .doOnError(new Action1<Throwable>() {
+                                    @Override
+                                    public void call(final Throwable error) {
+                                        if (isTransient(error)) {
+                                            circuitBreaker.onFailure();
+                                        } else {
+                                            circuitBreaker.onSuccess();
+                                        }
+                                    }
+                                })
+                                .compose(admission);
+                    }
+                });
+
+                return attempt.retryWhen(new RetryWithJitter());
+            }
+        };
+    }
+
+    /**
+     * Fails an attempt that took too long with a {@link WebServiceTimeoutException}, created
+     * only once it does.
+     */
+    private static <T> Observable<T> timedOut(final String endpoint,
+                                              final long timeoutMilliseconds) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                return Observable.error(
+                        new WebServiceTimeoutException(endpoint, timeoutMilliseconds));
+            }
+        });
+    }
+
+    /**
+     * Whether an error is worth retrying, and counts as the endpoint failing.
+     */
+    public static boolean isTransient(final Throwable error) {
+        if (error instanceof CircuitOpenException || error instanceof RequestShedException) {
+            return false;
+        } else if (error instanceof TimeoutException || error instanceof IOException) {
+            return true;
+        } else if (error instanceof WebServiceException) {
+            return isTransient(((WebServiceException) error).getCode());
+        } else if (error instanceof RetrofitError) {
+            final RetrofitError retrofitError = (RetrofitError) error;
+            switch (retrofitError.getKind()) {
+                case NETWORK:
+                    return true;
+                case HTTP:
+                    return isTransient(retrofitError.getResponse().getStatus());
+                default:
+                    return false;
+            }
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean isTransient(final int code) {
+        return code == TOO_MANY_REQUESTS || code >= SERVER_ERROR;
+    }
+
+    /**
+     * Resubscribes after transient errors, at most {@link #MAXIMUM_RETRIES} times. A new
+     * instance of the handler's state is created for every subscription.
+     */
+    private class RetryWithJitter
+            implements Func1<Observable<? extends Throwable>, Observable<?>> {
+
+        @Override
+        public Observable<?> call(final Observable<? extends Throwable> errors) {
+            final int[] retries = {0};
+            final long[] delayMilliseconds = {BASE_RETRY_DELAY_MILLISECONDS};
+
+            return errors.flatMap(new Func1<Throwable, Observable<?>>() {
+                @Override
+                public Observable<?> call(final Throwable error) {
+                    if (!isTransient(error) || retries[0] >= MAXIMUM_RETRIES) {
+                        return Observable.error(error);
+                    }
+
+                    retries[0]++;
+                    delayMilliseconds[0] = nextDelay(delayMilliseconds[0]);
+                    return Observable.timer(delayMilliseconds[0], TimeUnit.MILLISECONDS,
+                            mScheduler);
+                }
+            });
+        }
+
+        private long nextDelay(final long previousDelayMilliseconds) {
+            final long upperBound = previousDelayMilliseconds * 3;
+            final long delay = BASE_RETRY_DELAY_MILLISECONDS
+                    + (long) (mRandom.nextDouble() * (upperBound - BASE_RETRY_DELAY_MILLISECONDS));
+            return Math.min(delay, MAXIMUM_RETRY_DELAY_MILLISECONDS);
+        }
+    }
+}
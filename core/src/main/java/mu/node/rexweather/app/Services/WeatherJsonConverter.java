@@ -0,0 +1,408 @@
+package mu.node.rexweather.app.Services;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import mu.node.rexweather.app.Helpers.DailyForecastAggregator;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.MimeUtil;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Retrofit converter that pull-parses weather web service responses straight into our models,
+ * in a single pass and without reflection or intermediate objects.
+ * <p/>
+ * The web service always returns a HTTP header code of 200 and communicates errors through a
+ * 'cod' field in the JSON payload of the response body. We check it while parsing and fail
+ * with a {@link WebServiceException} wrapped in the ConversionException.
+ */
+public class WeatherJsonConverter implements Converter {
+    private static final int HTTP_OK = 200;
+    private static final int INITIAL_FORECAST_CAPACITY = 8;
+
+    // Five days of forecasts in 3 hour steps, plus the partial day either side.
+    private static final int INITIAL_HOURLY_FORECAST_CAPACITY = 40;
+    private static final int INITIAL_DAILY_FORECAST_CAPACITY = 6;
+
+    @Override
+    public Object fromBody(final TypedInput body, final Type type) throws ConversionException {
+        final String charset = MimeUtil.parseCharset(body.mimeType(), "UTF-8");
+        JsonReader reader = null;
+
+        try {
+            reader = new JsonReader(new InputStreamReader(body.in(), charset));
+
+            if (type == CurrentWeather.class) {
+                return readCurrentWeather(reader);
+            } else if (type == ForecastSeries.class) {
+                return readForecastSeries(reader);
+            } else if (type == HourlyForecast.class) {
+                return readHourlyForecast(reader);
+            } else if (isListOf(type, CurrentWeather.class)) {
+                return readCurrentWeatherGroup(reader);
+            } else {
+                throw new ConversionException("Unsupported type " + type);
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new ConversionException(e);
+        } catch (WebServiceException e) {
+            throw new ConversionException(e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    @Override
+    public TypedOutput toBody(final Object object) {
+        throw new UnsupportedOperationException("The weather web service only accepts queries");
+    }
+
+    private static boolean isListOf(final Type type, final Class<?> elementType) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+
+        final ParameterizedType parameterizedType = (ParameterizedType) type;
+        return parameterizedType.getRawType() == List.class
+                && parameterizedType.getActualTypeArguments()[0] == elementType;
+    }
+
+    /**
+     * Read the current weather of several cities. Group responses carry no 'cod' field of their
+     * own, only one per city.
+     */
+    private static List<CurrentWeather> readCurrentWeatherGroup(final JsonReader reader)
+            throws IOException, WebServiceException {
+        final List<CurrentWeather> currentWeather = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("list".equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    currentWeather.add(readCurrentWeather(reader, HTTP_OK));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return currentWeather;
+    }
+
+    private static CurrentWeather readCurrentWeather(final JsonReader reader)
+            throws IOException, WebServiceException {
+        return readCurrentWeather(reader, 0);
+    }
+
+    private static CurrentWeather readCurrentWeather(final JsonReader reader,
+                                                     final int defaultCode)
+            throws IOException, WebServiceException {
+        int code = defaultCode;
+        int cityId = 0;
+        String message = null;
+        String locationName = null;
+        long timestamp = 0;
+        WeatherCondition condition = WeatherCondition.UNKNOWN;
+        float temperature = 0, minimumTemperature = 0, maximumTemperature = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "cod":
+                    code = reader.nextInt();
+                    break;
+                case "message":
+                    message = nextStringOrNull(reader);
+                    break;
+                case "id":
+                    cityId = reader.nextInt();
+                    break;
+                case "name":
+                    locationName = nextStringOrNull(reader);
+                    break;
+                case "dt":
+                    timestamp = reader.nextLong();
+                    break;
+                case "weather":
+                    condition = readCondition(reader);
+                    break;
+                case "main":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "temp":
+                                temperature = (float) reader.nextDouble();
+                                break;
+                            case "temp_min":
+                                minimumTemperature = (float) reader.nextDouble();
+                                break;
+                            case "temp_max":
+                                maximumTemperature = (float) reader.nextDouble();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        checkCode(code, message);
+        return new CurrentWeather(cityId, locationName, timestamp, condition, temperature,
+                minimumTemperature, maximumTemperature);
+    }
+
+    private static ForecastSeries readForecastSeries(final JsonReader reader)
+            throws IOException, WebServiceException {
+        int code = 0;
+        String message = null;
+        String locationName = null;
+        final ForecastSeries forecasts = new ForecastSeries(null, INITIAL_FORECAST_CAPACITY);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "cod":
+                    code = reader.nextInt();
+                    break;
+                case "message":
+                    message = nextStringOrNull(reader);
+                    break;
+                case "city":
+                    locationName = readLocationName(reader);
+                    break;
+                case "list":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readForecast(reader, forecasts);
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        checkCode(code, message);
+
+        // The location name may follow the list, so it is only attached at the end.
+        return forecasts.withLocationName(locationName);
+    }
+
+    /**
+     * Read forecasts in 3 hour steps, deriving the daily forecasts from them as they are read.
+     */
+    private static HourlyForecast readHourlyForecast(final JsonReader reader)
+            throws IOException, WebServiceException {
+        int code = 0;
+        String message = null;
+        String locationName = null;
+        final ForecastSeries hourlyForecasts =
+                new ForecastSeries(null, INITIAL_HOURLY_FORECAST_CAPACITY);
+        final DailyForecastAggregator dailyForecasts = new DailyForecastAggregator(
+                TimeZone.getDefault(), INITIAL_DAILY_FORECAST_CAPACITY);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "cod":
+                    // This endpoint sends its code as a string, which nextInt() also accepts.
+                    code = reader.nextInt();
+                    break;
+                case "message":
+                    message = nextStringOrNull(reader);
+                    break;
+                case "city":
+                    locationName = readLocationName(reader);
+                    break;
+                case "list":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readHourlyForecastEntry(reader, hourlyForecasts, dailyForecasts);
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        checkCode(code, message);
+
+        return new HourlyForecast(hourlyForecasts, dailyForecasts.finish())
+                .withLocationName(locationName);
+    }
+
+    private static void readHourlyForecastEntry(final JsonReader reader,
+                                                final ForecastSeries hourlyForecasts,
+                                                final DailyForecastAggregator dailyForecasts)
+            throws IOException {
+        long timestamp = 0;
+        WeatherCondition condition = WeatherCondition.UNKNOWN;
+        float minimumTemperature = 0, maximumTemperature = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "dt":
+                    timestamp = reader.nextLong();
+                    break;
+                case "weather":
+                    condition = readCondition(reader);
+                    break;
+                case "main":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "temp_min":
+                                minimumTemperature = (float) reader.nextDouble();
+                                break;
+                            case "temp_max":
+                                maximumTemperature = (float) reader.nextDouble();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        hourlyForecasts.append(timestamp, condition, minimumTemperature, maximumTemperature);
+        dailyForecasts.add(timestamp, condition, minimumTemperature, maximumTemperature);
+    }
+
+    private static void readForecast(final JsonReader reader, final ForecastSeries forecasts)
+            throws IOException {
+        long timestamp = 0;
+        WeatherCondition condition = WeatherCondition.UNKNOWN;
+        float minimumTemperature = 0, maximumTemperature = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "dt":
+                    timestamp = reader.nextLong();
+                    break;
+                case "weather":
+                    condition = readCondition(reader);
+                    break;
+                case "temp":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "min":
+                                minimumTemperature = (float) reader.nextDouble();
+                                break;
+                            case "max":
+                                maximumTemperature = (float) reader.nextDouble();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        forecasts.append(timestamp, condition, minimumTemperature, maximumTemperature);
+    }
+
+    private static String readLocationName(final JsonReader reader) throws IOException {
+        String locationName = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("name".equals(reader.nextName())) {
+                locationName = nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return locationName;
+    }
+
+    /**
+     * Read the first condition in a 'weather' array. Only its code is read: the description
+     * comes from the shared condition table rather than a string of its own.
+     */
+    private static WeatherCondition readCondition(final JsonReader reader) throws IOException {
+        WeatherCondition condition = null;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (condition != null) {
+                reader.skipValue();
+                continue;
+            }
+
+            condition = WeatherCondition.UNKNOWN;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("id".equals(reader.nextName())) {
+                    condition = WeatherCondition.forCode(reader.nextInt());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+
+        return condition != null ? condition : WeatherCondition.UNKNOWN;
+    }
+
+    private static String nextStringOrNull(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        return reader.nextString();
+    }
+
+    private static void checkCode(final int code, final String message)
+            throws WebServiceException {
+        if (code != HTTP_OK) {
+            throw new WebServiceException(code, message);
+        }
+    }
+}
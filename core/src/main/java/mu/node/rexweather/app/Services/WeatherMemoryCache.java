@@ -0,0 +1,157 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Helpers.GeoHash;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+
+/**
+ * In-memory LRU cache of parsed weather models, keyed by geohash cell rather than by raw
+ * coordinates so that location fixes a few metres apart share their results.
+ */
+public class WeatherMemoryCache {
+    public static final int DEFAULT_GEOHASH_PRECISION = 5;
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 16;
+
+    private static final long CURRENT_WEATHER_TTL_MILLISECONDS = TimeUnit.MINUTES.toMillis(10);
+    private static final long FORECAST_TTL_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+
+    private final int mGeoHashPrecision;
+    private final LruStore<CurrentWeather> mCurrentWeather;
+    private final LruStore<ForecastSeries> mWeatherForecasts;
+    private final LruStore<HourlyForecast> mHourlyForecasts;
+
+    public WeatherMemoryCache() {
+        this(DEFAULT_GEOHASH_PRECISION, DEFAULT_MAXIMUM_ENTRIES);
+    }
+
+    public WeatherMemoryCache(final int geoHashPrecision, final int maximumEntries) {
+        this(geoHashPrecision, maximumEntries, Clock.MONOTONIC);
+    }
+
+    /**
+     * @param clock Measures how old entries are, so should be {@link Clock#MONOTONIC} outside
+     *              tests.
+     */
+    public WeatherMemoryCache(final int geoHashPrecision,
+                              final int maximumEntries,
+                              final Clock clock) {
+        mGeoHashPrecision = geoHashPrecision;
+        mCurrentWeather =
+                new LruStore<>(maximumEntries, CURRENT_WEATHER_TTL_MILLISECONDS, clock);
+        mWeatherForecasts = new LruStore<>(maximumEntries, FORECAST_TTL_MILLISECONDS, clock);
+        mHourlyForecasts = new LruStore<>(maximumEntries, FORECAST_TTL_MILLISECONDS, clock);
+    }
+
+    /**
+     * Quantize a coordinate into the cell used as the cache key.
+     */
+    public String getCell(final double longitude, final double latitude) {
+        return GeoHash.encode(longitude, latitude, mGeoHashPrecision);
+    }
+
+    public CurrentWeather getCurrentWeather(final String cell) {
+        return mCurrentWeather.get(cell);
+    }
+
+    public void putCurrentWeather(final String cell, final CurrentWeather currentWeather) {
+        mCurrentWeather.put(cell, currentWeather);
+    }
+
+    public ForecastSeries getWeatherForecasts(final String cell) {
+        return mWeatherForecasts.get(cell);
+    }
+
+    public void putWeatherForecasts(final String cell, final ForecastSeries weatherForecasts) {
+        mWeatherForecasts.put(cell, weatherForecasts);
+    }
+
+    public HourlyForecast getHourlyForecast(final String cell) {
+        return mHourlyForecasts.get(cell);
+    }
+
+    public void putHourlyForecast(final String cell, final HourlyForecast hourlyForecast) {
+        mHourlyForecasts.put(cell, hourlyForecast);
+    }
+
+    /**
+     * Shrink the cache to a fraction of its maximum size, e.g. when the system is running low
+     * on memory.
+     */
+    public void trimToFraction(final float fraction) {
+        mCurrentWeather.trimToFraction(fraction);
+        mWeatherForecasts.trimToFraction(fraction);
+        mHourlyForecasts.trimToFraction(fraction);
+    }
+
+    public void evictAll() {
+        trimToFraction(0);
+    }
+
+    private static class LruStore<V> {
+        private final int mMaximumEntries;
+        private final long mTimeToLiveMilliseconds;
+        private final Clock mClock;
+        private final LinkedHashMap<String, CacheEntry<V>> mEntries;
+
+        LruStore(final int maximumEntries,
+                 final long timeToLiveMilliseconds,
+                 final Clock clock) {
+            mMaximumEntries = maximumEntries;
+            mTimeToLiveMilliseconds = timeToLiveMilliseconds;
+            mClock = clock;
+
+            // An access ordered map keeps the least recently used entry at its head.
+            mEntries = new LinkedHashMap<String, CacheEntry<V>>(maximumEntries, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, CacheEntry<V>> eldest) {
+                    return size() > mMaximumEntries;
+                }
+            };
+        }
+
+        synchronized V get(final String key) {
+            final CacheEntry<V> entry = mEntries.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (mClock.currentTimeMillis() - entry.mCreatedAt > mTimeToLiveMilliseconds) {
+                mEntries.remove(key);
+                return null;
+            }
+
+            return entry.mValue;
+        }
+
+        synchronized void put(final String key, final V value) {
+            mEntries.put(key, new CacheEntry<>(value, mClock.currentTimeMillis()));
+        }
+
+        synchronized void trimToFraction(final float fraction) {
+            final int size = (int) (mMaximumEntries * fraction);
+
+            final Iterator<String> keys = mEntries.keySet().iterator();
+            while (mEntries.size() > size && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+    private static class CacheEntry<V> {
+        final V mValue;
+        final long mCreatedAt;
+
+        CacheEntry(final V value, final long createdAt) {
+            mValue = value;
+            mCreatedAt = createdAt;
+        }
+    }
+}
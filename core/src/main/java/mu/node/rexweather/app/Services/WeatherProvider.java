@@ -0,0 +1,42 @@
+package mu.node.rexweather.app.Services;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import rx.Observable;
+
+/**
+ * A backend we can fetch the weather from, mapped onto our models.
+ * <p/>
+ * Requests must be cold, making a new call for every subscription, so that they can be retried
+ * and hedged. Errors the backend reports itself should be passed on as a
+ * {@link WebServiceException} carrying its status code, so that they are told apart from
+ * transient failures in the same way for every backend.
+ */
+public interface WeatherProvider {
+
+    /**
+     * Short name of the provider, used to tell its endpoints apart in metrics.
+     */
+    String getName();
+
+    /**
+     * @param cacheControl Cache-Control header for the request, or null for the default
+     *                     caching rules.
+     */
+    Observable<CurrentWeather> fetchCurrentWeather(double longitude, double latitude,
+                                                   String cacheControl);
+
+    /**
+     * Fetch daily forecasts for the coming 7 days.
+     */
+    Observable<ForecastSeries> fetchWeatherForecasts(double longitude, double latitude,
+                                                     String cacheControl);
+
+    /**
+     * Fetch forecasts in 3 hour steps for the coming five days, with the daily forecasts derived
+     * from them.
+     */
+    Observable<HourlyForecast> fetchHourlyForecasts(double longitude, double latitude,
+                                                    String cacheControl);
+}
@@ -0,0 +1,212 @@
+package mu.node.rexweather.app.Services;
+
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.CacheControl;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action1;
+import rx.functions.Actions;
+
+/**
+ * Size-bounded on-disk cache for responses from the weather web service.
+ * <p/>
+ * The web service does not send useful caching headers, so we assign each endpoint its own
+ * freshness lifetime. Stale responses are served straight away while a background request
+ * revalidates them, and when the network is unavailable we fall back to whatever is cached.
+ * <p/>
+ * Revalidations wait for a permit from the rate limiter at background priority, and are dropped
+ * when too many background calls are already waiting. The stale response is revalidated on a
+ * later request instead.
+ */
+public class WeatherResponseCache {
+    private static final long CACHE_SIZE_BYTES = 2 * 1024 * 1024;
+
+    // How long each endpoint's responses are considered fresh.
+    private static final int CURRENT_WEATHER_TTL_SECONDS = (int) TimeUnit.MINUTES.toSeconds(10);
+    private static final int FORECAST_TTL_SECONDS = (int) TimeUnit.HOURS.toSeconds(1);
+
+    // How long past its freshness lifetime a response may be served while it is revalidated.
+    private static final int STALE_WHILE_REVALIDATE_SECONDS = (int) TimeUnit.HOURS.toSeconds(6);
+
+    private static final String STALE_WARNING = "110";
+
+    private final Cache mCache;
+    private final RateLimiter mRateLimiter;
+    private final Set<String> mRevalidatingUrls = Collections.synchronizedSet(new HashSet<String>());
+
+    public WeatherResponseCache(final File cacheDirectory, final RateLimiter rateLimiter) {
+        mCache = new Cache(new File(cacheDirectory, "weather-responses"), CACHE_SIZE_BYTES);
+        mRateLimiter = rateLimiter;
+    }
+
+    /**
+     * Attach the cache and its freshness rules to a HTTP client.
+     */
+    public void install(final OkHttpClient client) {
+        client.setCache(mCache);
+        client.interceptors().add(new StaleWhileRevalidateInterceptor(client));
+        client.networkInterceptors().add(new FreshnessInterceptor());
+    }
+
+    private static int getFreshnessLifetime(final Request request) {
+        final String path = request.url().getPath();
+        if (path.endsWith("/weather")) {
+            return CURRENT_WEATHER_TTL_SECONDS;
+        } else if (path.contains("/forecast")) {
+            return FORECAST_TTL_SECONDS;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Rewrites the caching headers of network responses so that they are stored with the
+     * freshness lifetime of their endpoint.
+     */
+    private static class FreshnessInterceptor implements Interceptor {
+        @Override
+        public Response intercept(final Chain chain) throws IOException {
+            final Response response = chain.proceed(chain.request());
+            final int freshnessLifetime = getFreshnessLifetime(chain.request());
+
+            if (!response.isSuccessful() || freshnessLifetime == 0) {
+                return response;
+            }
+
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "public, max-age=" + freshnessLifetime)
+                    .build();
+        }
+    }
+
+    /**
+     * Accepts stale cached responses and refreshes them in the background, and serves cached
+     * responses of any age when the network request fails.
+     */
+    private class StaleWhileRevalidateInterceptor implements Interceptor {
+        private final OkHttpClient mClient;
+
+        StaleWhileRevalidateInterceptor(final OkHttpClient client) {
+            mClient = client;
+        }
+
+        @Override
+        public Response intercept(final Chain chain) throws IOException {
+            final Request request = chain.request();
+
+            // Revalidation requests and requests with their own cache policy pass through.
+            if (request.cacheControl().noCache() || request.cacheControl().onlyIfCached()
+                    || !"GET".equals(request.method())) {
+                return chain.proceed(request);
+            }
+
+            final Request staleRequest = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .maxStale(STALE_WHILE_REVALIDATE_SECONDS, TimeUnit.SECONDS)
+                            .build())
+                    .build();
+
+            final Response response;
+            try {
+                response = chain.proceed(staleRequest);
+            } catch (IOException e) {
+                return proceedFromCache(chain, request, e);
+            }
+
+            if (isStale(response)) {
+                revalidate(request);
+            }
+
+            return response;
+        }
+
+        private Response proceedFromCache(final Chain chain, final Request request,
+                                          final IOException networkError) throws IOException {
+            final Response cachedResponse = chain.proceed(request.newBuilder()
+                    .cacheControl(CacheControl.FORCE_CACHE)
+                    .build());
+
+            // OkHttp answers 504 when a cache-only request can not be satisfied.
+            if (cachedResponse.code() == 504) {
+                throw networkError;
+            }
+
+            return cachedResponse;
+        }
+
+        private boolean isStale(final Response response) {
+            if (response.networkResponse() != null || response.cacheResponse() == null) {
+                return false;
+            }
+
+            for (final String warning : response.headers("Warning")) {
+                if (warning.startsWith(STALE_WARNING)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void revalidate(final Request request) {
+            final String url = request.urlString();
+            if (!mRevalidatingUrls.add(url)) {
+                return;
+            }
+
+            final Request revalidationRequest = request.newBuilder()
+                    .cacheControl(CacheControl.FORCE_NETWORK)
+                    .build();
+
+            final Observable<Void> revalidation = Observable.create(
+                    new Observable.OnSubscribe<Void>() {
+                        @Override
+                        public void call(final Subscriber<? super Void> subscriber) {
+                            enqueue(url, revalidationRequest);
+                        }
+                    });
+
+            revalidation
+                    .compose(mRateLimiter.<Void>limit(RateLimiter.Priority.BACKGROUND))
+                    .subscribe(Actions.empty(), new Action1<Throwable>() {
+                        @Override
+                        public void call(final Throwable shed) {
+                            mRevalidatingUrls.remove(url);
+                        }
+                    });
+        }
+
+        private void enqueue(final String url, final Request revalidationRequest) {
+            mClient.newCall(revalidationRequest).enqueue(new Callback() {
+                @Override
+                public void onFailure(final Request request, final IOException e) {
+                    mRevalidatingUrls.remove(url);
+                }
+
+                @Override
+                public void onResponse(final Response response) throws IOException {
+                    try {
+                        // The response is only written to the cache once its body is consumed.
+                        response.body().bytes();
+                    } finally {
+                        mRevalidatingUrls.remove(url);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Fetches the weather for the app, from memory where possible and otherwise from a primary
+ * weather provider. Given a secondary provider as well, slow requests to the primary are hedged
+ * with requests to the secondary.
+ * <p/>
+ * Requests to the web service are rate limited, to stay within the quota of the API key, with
+ * one permit taken per attempt. Each fetch takes a priority, so that a refresh the user is
+ * waiting for goes ahead of background and bulk requests. Requests for the same cell share a single call, made at the priority of the first.
+ */
+public class WeatherService {
+    // Endpoint names used when counting request outcomes, prefixed with the provider's name.
+    public static final String ENDPOINT_CURRENT_WEATHER = "weather";
+    public static final String ENDPOINT_FORECASTS = "forecast";
+    public static final String ENDPOINT_HOURLY_FORECASTS = "forecast/hourly";
+    public static final String ENDPOINT_GROUP = "group";
+
+    // The group endpoint accepts at most 20 city IDs per request.
+    private static final int MAXIMUM_GROUP_SIZE = 20;
+    private static final int MAXIMUM_CONCURRENT_GROUP_REQUESTS = 3;
+
+    // How long each attempt at a call may take before it is abandoned and retried.
+    private static final long CURRENT_WEATHER_TIMEOUT_MILLISECONDS = 8000;
+    private static final long FORECASTS_TIMEOUT_MILLISECONDS = 12000;
+    private static final long HOURLY_FORECASTS_TIMEOUT_MILLISECONDS = 15000;
+    private static final long GROUP_TIMEOUT_MILLISECONDS = 15000;
+
+    // Asks the HTTP cache for whatever response it holds, however old.
+    private static final String CACHE_ONLY = "only-if-cached, max-stale=" + Integer.MAX_VALUE;
+
+    private final OpenWeatherMapProvider mPrimary;
+    private final WeatherProvider mSecondary;
+    private final WeatherMemoryCache mMemoryCache;
+    private final RequestCoalescer mRequestCoalescer = new RequestCoalescer();
+    private final WeatherMetrics mMetrics;
+    private final ResiliencePolicy mResiliencePolicy;
+    private final HedgingPolicy mHedgingPolicy;
+    private final RateLimiter mRateLimiter;
+
+    public WeatherService(final NetworkStack networkStack,
+                          final WeatherMemoryCache memoryCache,
+                          final WeatherMetrics metrics) {
+        this(new OpenWeatherMapProvider(networkStack, metrics), null, memoryCache, metrics,
+                new ResiliencePolicy(), new HedgingPolicy(), networkStack.getRateLimiter());
+    }
+
+    /**
+     * @param primary   Provider asked first. Group requests and cached responses only come
+     *                  from the primary, as they rely on its city IDs and its HTTP cache.
+     * @param secondary Provider to hedge slow requests with, or null not to hedge.
+     * @param rateLimiter Limits every attempt at a request, to either provider. Should be the
+     *                    network stack's, which also meters background revalidations.
+     */
+    public WeatherService(final OpenWeatherMapProvider primary,
+                          final WeatherProvider secondary,
+                          final WeatherMemoryCache memoryCache,
+                          final WeatherMetrics metrics,
+                          final ResiliencePolicy resiliencePolicy,
+                          final HedgingPolicy hedgingPolicy,
+                          final RateLimiter rateLimiter) {
+        mPrimary = primary;
+        mSecondary = secondary;
+        mMemoryCache = memoryCache;
+        mMetrics = metrics;
+        mResiliencePolicy = resiliencePolicy;
+        mHedgingPolicy = hedgingPolicy;
+        mRateLimiter = rateLimiter;
+    }
+
+    /**
+     * The cell a location falls in. Locations in the same cell share their weather.
+     */
+    public String getLocationCell(final double longitude, final double latitude) {
+        return mMemoryCache.getCell(longitude, latitude);
+    }
+
+    public Observable<CurrentWeather> fetchCurrentWeather(final double longitude,
+                                                          final double latitude) {
+        return fetchCurrentWeather(longitude, latitude, RateLimiter.Priority.FOREGROUND);
+    }
+
+    public Observable<CurrentWeather> fetchCurrentWeather(final double longitude,
+                                                          final double latitude,
+                                                          final RateLimiter.Priority priority) {
+        final String cell = mMemoryCache.getCell(longitude, latitude);
+
+        return Observable.defer(new Func0<Observable<CurrentWeather>>() {
+
+            // Skip the web service if we already hold recent results for this location.
+            @Override
+            public Observable<CurrentWeather> call() {
+                final CurrentWeather currentWeather = mMemoryCache.getCurrentWeather(cell);
+                if (currentWeather != null) {
+                    return Observable.just(currentWeather);
+                }
+
+                // Share the request with any other subscribers asking about the same cell. Stale
+                // results served while the endpoint is down are kept out of the memory cache.
+                return mRequestCoalescer.coalesce("weather/" + cell,
+                        fetchCurrentWeatherFromWebService(longitude, latitude, priority)
+                                .doOnNext(new Action1<CurrentWeather>() {
+                                    @Override
+                                    public void call(final CurrentWeather currentWeather) {
+                                        mMemoryCache.putCurrentWeather(cell, currentWeather);
+                                    }
+                                })
+                                .onErrorResumeNext(whileCircuitOpen(
+                                        mPrimary.fetchCurrentWeather(longitude, latitude,
+                                                CACHE_ONLY))));
+            }
+        });
+    }
+
+    public Observable<ForecastSeries> fetchWeatherForecasts(final double longitude,
+                                                            final double latitude) {
+        return fetchWeatherForecasts(longitude, latitude, RateLimiter.Priority.FOREGROUND);
+    }
+
+    public Observable<ForecastSeries> fetchWeatherForecasts(final double longitude,
+                                                            final double latitude,
+                                                            final RateLimiter.Priority priority) {
+        final String cell = mMemoryCache.getCell(longitude, latitude);
+
+        return Observable.defer(new Func0<Observable<ForecastSeries>>() {
+
+            // Skip the web service if we already hold recent results for this location.
+            @Override
+            public Observable<ForecastSeries> call() {
+                final ForecastSeries weatherForecasts = mMemoryCache.getWeatherForecasts(cell);
+                if (weatherForecasts != null) {
+                    return Observable.just(weatherForecasts);
+                }
+
+                // Share the request with any other subscribers asking about the same cell. Stale
+                // results served while the endpoint is down are kept out of the memory cache.
+                return mRequestCoalescer.coalesce("forecast/" + cell,
+                        fetchWeatherForecastsFromWebService(longitude, latitude, priority)
+                                .doOnNext(new Action1<ForecastSeries>() {
+                                    @Override
+                                    public void call(final ForecastSeries forecasts) {
+                                        mMemoryCache.putWeatherForecasts(cell, forecasts);
+                                    }
+                                })
+                                .onErrorResumeNext(whileCircuitOpen(
+                                        mPrimary.fetchWeatherForecasts(longitude, latitude,
+                                                CACHE_ONLY))));
+            }
+        });
+    }
+
+    /**
+     * Fetch forecasts in 3 hour steps for the coming five days. The daily forecasts derived from
+     * them come along, so that the daily view needs no request of its own.
+     */
+    public Observable<HourlyForecast> fetchHourlyForecasts(final double longitude,
+                                                           final double latitude) {
+        return fetchHourlyForecasts(longitude, latitude, RateLimiter.Priority.FOREGROUND);
+    }
+
+    public Observable<HourlyForecast> fetchHourlyForecasts(final double longitude,
+                                                           final double latitude,
+                                                           final RateLimiter.Priority priority) {
+        final String cell = mMemoryCache.getCell(longitude, latitude);
+
+        return Observable.defer(new Func0<Observable<HourlyForecast>>() {
+
+            // Skip the web service if we already hold recent results for this location.
+            @Override
+            public Observable<HourlyForecast> call() {
+                final HourlyForecast hourlyForecast = mMemoryCache.getHourlyForecast(cell);
+                if (hourlyForecast != null) {
+                    return Observable.just(hourlyForecast);
+                }
+
+                // Share the request with any other subscribers asking about the same cell. Stale
+                // results served while the endpoint is down are kept out of the memory cache.
+                return mRequestCoalescer.coalesce("forecast/hourly/" + cell,
+                        fetchHourlyForecastsFromWebService(longitude, latitude, priority)
+                                .doOnNext(new Action1<HourlyForecast>() {
+                                    @Override
+                                    public void call(final HourlyForecast forecast) {
+                                        mMemoryCache.putHourlyForecast(cell, forecast);
+                                    }
+                                })
+                                .onErrorResumeNext(whileCircuitOpen(
+                                        mPrimary.fetchHourlyForecasts(longitude, latitude,
+                                                CACHE_ONLY))));
+            }
+        });
+    }
+
+    /**
+     * Fetch the current weather for many cities with as few requests as possible. The city IDs
+     * are packed into group requests of up to 20 IDs, a few of which run at a time, and each
+     * city's result is handed to its own Observable.
+     * <p/>
+     * The group requests start when the first of the returned Observables is subscribed to.
+     * Cities missing from a response complete without a result.
+     */
+    public Map<Integer, Observable<CurrentWeather>> fetchCurrentWeatherForCities(
+            final Collection<Integer> cityIds) {
+        return fetchCurrentWeatherForCities(cityIds, RateLimiter.Priority.FOREGROUND);
+    }
+
+    public Map<Integer, Observable<CurrentWeather>> fetchCurrentWeatherForCities(
+            final Collection<Integer> cityIds, final RateLimiter.Priority priority) {
+        final List<Integer> distinctCityIds = new ArrayList<>(new LinkedHashSet<>(cityIds));
+        final List<Observable<GroupResult>> groupRequests = new ArrayList<>();
+
+        for (int start = 0; start < distinctCityIds.size(); start += MAXIMUM_GROUP_SIZE) {
+            final int group = groupRequests.size();
+            final List<Integer> groupCityIds = distinctCityIds.subList(start,
+                    Math.min(start + MAXIMUM_GROUP_SIZE, distinctCityIds.size()));
+            groupRequests.add(fetchCurrentWeatherGroup(group, groupCityIds, priority));
+        }
+
+        final Observable<GroupResult> groupResults = Observable
+                .merge(Observable.from(groupRequests), MAXIMUM_CONCURRENT_GROUP_REQUESTS)
+                .cache();
+
+        final Map<Integer, Observable<CurrentWeather>> currentWeather = new LinkedHashMap<>();
+        for (int i = 0; i < distinctCityIds.size(); i++) {
+            final int cityId = distinctCityIds.get(i);
+            final int group = i / MAXIMUM_GROUP_SIZE;
+
+            // Pick this city's result out of the results of its group.
+            currentWeather.put(cityId, groupResults
+                    .filter(new Func1<GroupResult, Boolean>() {
+                        @Override
+                        public Boolean call(final GroupResult result) {
+                            return result.mGroup == group;
+                        }
+                    })
+                    .take(1)
+                    .flatMap(new Func1<GroupResult, Observable<CurrentWeather>>() {
+                        @Override
+                        public Observable<CurrentWeather> call(final GroupResult result) {
+                            if (result.mError != null) {
+                                return Observable.error(result.mError);
+                            }
+
+                            for (final CurrentWeather cityWeather : result.mCurrentWeather) {
+                                if (cityWeather.getCityId() == cityId) {
+                                    return Observable.just(cityWeather);
+                                }
+                            }
+
+                            return Observable.empty();
+                        }
+                    }));
+        }
+
+        return currentWeather;
+    }
+
+    private Observable<GroupResult> fetchCurrentWeatherGroup(final int group,
+                                                             final List<Integer> cityIds,
+                                                             final RateLimiter.Priority priority) {
+        final StringBuilder joinedCityIds = new StringBuilder();
+        for (final Integer cityId : cityIds) {
+            if (joinedCityIds.length() > 0) {
+                joinedCityIds.append(',');
+            }
+            joinedCityIds.append(cityId);
+        }
+
+        // Errors are delivered as results, so that a failed group only fails its own cities.
+        final String endpoint = getEndpointName(mPrimary, ENDPOINT_GROUP);
+        return mPrimary.fetchCurrentWeatherGroup(joinedCityIds.toString())
+                .compose(mResiliencePolicy.<List<CurrentWeather>>guard(endpoint,
+                        GROUP_TIMEOUT_MILLISECONDS,
+                        mRateLimiter.<List<CurrentWeather>>limit(priority)))
+                .compose(mMetrics.<List<CurrentWeather>>countOutcomes(endpoint))
+                .map(new Func1<List<CurrentWeather>, GroupResult>() {
+                    @Override
+                    public GroupResult call(final List<CurrentWeather> currentWeather) {
+                        return new GroupResult(group, currentWeather, null);
+                    }
+                })
+                .onErrorReturn(new Func1<Throwable, GroupResult>() {
+                    @Override
+                    public GroupResult call(final Throwable error) {
+                        return new GroupResult(group, null, error);
+                    }
+                });
+    }
+
+    private Observable<CurrentWeather> fetchCurrentWeatherFromWebService(
+            final double longitude, final double latitude, final RateLimiter.Priority priority) {
+        return fetchFromProviders(ENDPOINT_CURRENT_WEATHER, CURRENT_WEATHER_TIMEOUT_MILLISECONDS,
+                priority,
+                new Func1<WeatherProvider, Observable<CurrentWeather>>() {
+                    @Override
+                    public Observable<CurrentWeather> call(final WeatherProvider provider) {
+                        return provider.fetchCurrentWeather(longitude, latitude, null);
+                    }
+                });
+    }
+
+    private Observable<ForecastSeries> fetchWeatherForecastsFromWebService(
+            final double longitude, final double latitude, final RateLimiter.Priority priority) {
+        return fetchFromProviders(ENDPOINT_FORECASTS, FORECASTS_TIMEOUT_MILLISECONDS, priority,
+                new Func1<WeatherProvider, Observable<ForecastSeries>>() {
+                    @Override
+                    public Observable<ForecastSeries> call(final WeatherProvider provider) {
+                        return provider.fetchWeatherForecasts(longitude, latitude, null);
+                    }
+                });
+    }
+
+    private Observable<HourlyForecast> fetchHourlyForecastsFromWebService(
+            final double longitude, final double latitude, final RateLimiter.Priority priority) {
+        return fetchFromProviders(ENDPOINT_HOURLY_FORECASTS, HOURLY_FORECASTS_TIMEOUT_MILLISECONDS,
+                priority,
+                new Func1<WeatherProvider, Observable<HourlyForecast>>() {
+                    @Override
+                    public Observable<HourlyForecast> call(final WeatherProvider provider) {
+                        return provider.fetchHourlyForecasts(longitude, latitude, null);
+                    }
+                });
+    }
+
+    /**
+     * Make a request of the primary provider, hedged with the secondary if there is one. Each
+     * provider's endpoint has its own resilience policy and outcome counts.
+     * <p/>
+     * Every attempt waits for a permit from the rate limiter, retries and hedges included, and
+     * its timeout only starts once it has one.
+     */
+    private <T> Observable<T> fetchFromProviders(
+            final String endpoint, final long timeoutMilliseconds,
+            final RateLimiter.Priority priority,
+            final Func1<WeatherProvider, Observable<T>> request) {
+        final Observable<T> primaryRequest = guard(mPrimary, endpoint, timeoutMilliseconds,
+                priority, request);
+        if (mSecondary == null) {
+            return primaryRequest;
+        }
+
+        return mHedgingPolicy.hedge(getEndpointName(mPrimary, endpoint), primaryRequest,
+                guard(mSecondary, endpoint, timeoutMilliseconds, priority, request));
+    }
+
+    private <T> Observable<T> guard(final WeatherProvider provider,
+                                    final String endpoint,
+                                    final long timeoutMilliseconds,
+                                    final RateLimiter.Priority priority,
+                                    final Func1<WeatherProvider, Observable<T>> request) {
+        final String endpointName = getEndpointName(provider, endpoint);
+        return request.call(provider)
+                .compose(mResiliencePolicy.<T>guard(endpointName, timeoutMilliseconds,
+                        mRateLimiter.<T>limit(priority)))
+                .compose(mMetrics.<T>countOutcomes(endpointName));
+    }
+
+    private static String getEndpointName(final WeatherProvider provider,
+                                          final String endpoint) {
+        return provider.getName() + "/" + endpoint;
+    }
+
+    /**
+     * While an endpoint's circuit is open, fall back to the cached response from the HTTP cache.
+     * If nothing is cached, or for any other error, the original error is passed on.
+     */
+    private static <T> Func1<Throwable, Observable<T>> whileCircuitOpen(
+            final Observable<T> cachedResponse) {
+        return new Func1<Throwable, Observable<T>>() {
+            @Override
+            public Observable<T> call(final Throwable error) {
+                if (!(error instanceof CircuitOpenException)) {
+                    return Observable.error(error);
+                }
+
+                return cachedResponse.onErrorResumeNext(Observable.<T>error(error));
+            }
+        };
+    }
+
+    /**
+     * Outcome of one group request.
+     */
+    private static class GroupResult {
+        final int mGroup;
+        final List<CurrentWeather> mCurrentWeather;
+        final Throwable mError;
+
+        GroupResult(final int group, final List<CurrentWeather> currentWeather,
+                    final Throwable error) {
+            mGroup = group;
+            mCurrentWeather = currentWeather;
+            mError = error;
+        }
+    }
+}
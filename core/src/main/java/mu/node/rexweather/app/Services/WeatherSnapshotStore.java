@@ -0,0 +1,207 @@
+package mu.node.rexweather.app.Services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+/**
+ * Persists the last weather snapshot we fetched in a compact binary file, so that it can be
+ * shown straight away the next time the app starts.
+ * <p/>
+ * The file starts with a magic number and a format version, followed by the location cell, the
+ * current weather and the forecasts column by column. Files of another version are ignored.
+ */
+public class WeatherSnapshotStore {
+    private static final int MAGIC = 0x52585753;  // "RXWS"
+    private static final int VERSION = 3;
+    private static final int FORECAST_BYTES = 8 + 4 + 4 + 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final Executor mExecutor;
+
+    public WeatherSnapshotStore(final File file, final Executor executor) {
+        mFile = file;
+        mExecutor = executor;
+    }
+
+    /**
+     * Read the stored snapshot through a memory mapping of the file. This is cheap enough to
+     * do on the main thread. Returns null if there is no usable snapshot.
+     */
+    public WeatherSnapshot read() {
+        if (!mFile.exists()) {
+            return null;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "r");
+            final FileChannel channel = file.getChannel();
+            return readSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // The file is truncated or corrupt. Start empty; the next snapshot replaces it.
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Store a snapshot in the background, replacing the previous one. Hourly snapshots are
+     * stored as their daily forecasts, so that start-up always shows the daily view.
+     */
+    public void writeInBackground(final WeatherSnapshot snapshot) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(snapshot);
+                } catch (IOException ignored) {
+                    // We will try again with the next snapshot.
+                }
+            }
+        });
+    }
+
+    public synchronized void write(final WeatherSnapshot snapshot) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        final DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeString(output, snapshot.getLocationCell());
+
+        final CurrentWeather currentWeather = snapshot.getCurrentWeather();
+        output.writeBoolean(currentWeather != null);
+        if (currentWeather != null) {
+            output.writeInt(currentWeather.getCityId());
+            writeString(output, currentWeather.getLocationName());
+            output.writeLong(currentWeather.getTimestamp());
+            output.writeShort(currentWeather.getCondition().getCode());
+            output.writeFloat(currentWeather.getTemperature());
+            output.writeFloat(currentWeather.getMinimumTemperature());
+            output.writeFloat(currentWeather.getMaximumTemperature());
+        }
+
+        final ForecastSeries forecasts = snapshot.toDaily().getWeatherForecasts();
+        final int size = forecasts.size();
+        writeString(output, forecasts.getLocationName());
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeLong(forecasts.getTimestamp(i));
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeFloat(forecasts.getMinimumTemperature(i));
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeFloat(forecasts.getMaximumTemperature(i));
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeShort(forecasts.getConditionCode(i));
+        }
+        output.flush();
+
+        // Write to a temporary file first, so that a reader never sees half a snapshot.
+        final File temporaryFile = new File(mFile.getPath() + ".tmp");
+        final FileOutputStream fileOutput = new FileOutputStream(temporaryFile);
+        try {
+            bytes.writeTo(fileOutput);
+            fileOutput.getFD().sync();
+        } finally {
+            fileOutput.close();
+        }
+
+        if (!temporaryFile.renameTo(mFile)) {
+            throw new IOException("Could not replace " + mFile);
+        }
+    }
+
+    private static WeatherSnapshot readSnapshot(final ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+
+        final String locationCell = readString(buffer);
+        CurrentWeather currentWeather = null;
+        if (buffer.get() != 0) {
+            final int cityId = buffer.getInt();
+            final String locationName = readString(buffer);
+            final long timestamp = buffer.getLong();
+            final WeatherCondition condition = WeatherCondition.forCode(buffer.getShort());
+            final float temperature = buffer.getFloat();
+            final float minimumTemperature = buffer.getFloat();
+            final float maximumTemperature = buffer.getFloat();
+            currentWeather = new CurrentWeather(cityId, locationName, timestamp, condition,
+                    temperature, minimumTemperature, maximumTemperature);
+        }
+
+        final String locationName = readString(buffer);
+        final int size = buffer.getInt();
+        if (size < 0 || size > buffer.remaining() / FORECAST_BYTES) {
+            return null;
+        }
+
+        // Columns are laid out one after the other, so read each through its own position.
+        final int timestamps = buffer.position();
+        final int minimumTemperatures = timestamps + size * 8;
+        final int maximumTemperatures = minimumTemperatures + size * 4;
+        final int conditionCodes = maximumTemperatures + size * 4;
+
+        final ForecastSeries forecasts = new ForecastSeries(locationName, size);
+        for (int i = 0; i < size; i++) {
+            forecasts.append(buffer.getLong(timestamps + i * 8),
+                    WeatherCondition.forCode(buffer.getShort(conditionCodes + i * 2)),
+                    buffer.getFloat(minimumTemperatures + i * 4),
+                    buffer.getFloat(maximumTemperatures + i * 4));
+        }
+
+        return new WeatherSnapshot(currentWeather, forecasts).withLocationCell(locationCell);
+    }
+
+    private static void writeString(final DataOutputStream output, final String string)
+            throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = string.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) throws IOException {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        // Check before allocating, as a corrupt length could ask for any amount of memory.
+        if (length > buffer.remaining()) {
+            throw new IOException("Truncated string of " + length + " bytes");
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,19 @@
+package mu.node.rexweather.app.Services;
+
+/**
+ * Thrown when the weather web service reports an error through the 'cod' field of its response.
+ */
+public class WebServiceException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int mCode;
+
+    public WebServiceException(final int code, final String message) {
+        super("There was a problem fetching the weather data (" + code + "): " + message);
+        mCode = code;
+    }
+
+    public int getCode() {
+        return mCode;
+    }
+}
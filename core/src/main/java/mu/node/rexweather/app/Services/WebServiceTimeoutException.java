@@ -0,0 +1,16 @@
+package mu.node.rexweather.app.Services;
+
+/**
+ * Raised when an attempt at a call to the web service takes too long. It is reported like the
+ * web service timing out, so that it is never mistaken for other timeouts, e.g. waiting for a
+ * location fix.
+ */
+public class WebServiceTimeoutException extends WebServiceException {
+    private static final long serialVersionUID = 1L;
+    private static final int GATEWAY_TIMEOUT = 504;
+
+    public WebServiceTimeoutException(final String endpoint, final long timeoutMilliseconds) {
+        super(GATEWAY_TIMEOUT, "'" + endpoint + "' took longer than " + timeoutMilliseconds
+                + " ms");
+    }
+}
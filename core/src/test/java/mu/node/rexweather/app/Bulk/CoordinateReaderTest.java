@@ -0,0 +1,69 @@
+package mu.node.rexweather.app.Bulk;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoordinateReaderTest {
+    private final BulkStats mStats = new BulkStats();
+    private final ByteArrayOutputStream mWarnings = new ByteArrayOutputStream();
+
+    @Test
+    public void readsOneCoordinatePerLine() {
+        assertEquals(Arrays.asList("51.5074,-0.1278", "-33.8688,151.2093", "90.0,-180.0"),
+                read("51.5074,-0.1278\n -33.8688 , 151.2093 \n90,-180\n"));
+        assertEquals(0, mStats.getSkippedCount());
+    }
+
+    @Test
+    public void ignoresBlankLinesAndComments() {
+        assertEquals(Arrays.asList("1.0,2.0"), read("# lat,lon\n\n   \n1,2\n"));
+        assertEquals(0, mStats.getSkippedCount());
+    }
+
+    @Test
+    public void skipsAndCountsMalformedLines() {
+        assertEquals(Arrays.asList("1.0,2.0", "3.0,4.0"),
+                read("1,2\nlondon\n5;6\n,\n7,8,9\n3,4\nnorth,east\n"));
+        assertEquals(5, mStats.getSkippedCount());
+        assertTrue(warnings().contains("Skipping line 2: "));
+        assertTrue(warnings().contains("Skipping line 7: "));
+    }
+
+    @Test
+    public void skipsAndCountsCoordinatesOutOfRange() {
+        assertEquals(Arrays.asList("-90.0,180.0"),
+                read("91,0\n-90.5,0\n0,180.1\n0,-200\nNaN,0\n0,Infinity\n-90,180\n"));
+        assertEquals(6, mStats.getSkippedCount());
+        assertTrue(warnings().contains("Skipping line 1: Latitude 91.0 is out of range"));
+        assertTrue(warnings().contains("Skipping line 4: Longitude -200.0 is out of range"));
+    }
+
+    @Test
+    public void endsAfterSkippedTrailingLines() {
+        assertEquals(Arrays.asList("1.0,2.0"), read("1,2\nbad\n# done\n"));
+        assertEquals(1, mStats.getSkippedCount());
+    }
+
+    private List<String> read(final String input) {
+        final List<String> coordinates = new ArrayList<>();
+        for (final Coordinate coordinate : new CoordinateReader(
+                new BufferedReader(new StringReader(input)), mStats, new PrintStream(mWarnings))) {
+            coordinates.add(coordinate.toString());
+        }
+        return coordinates;
+    }
+
+    private String warnings() {
+        return mWarnings.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package mu.node.rexweather.app.Helpers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DayBucketFormatterTest {
+    // Clocks go forward on 29 March 2026 and back on 25 October 2026.
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("Europe/London");
+
+    private TimeZone mDefaultTimeZone;
+    private DayBucketFormatter mFormatter;
+
+    @Before
+    public void setUp() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TIME_ZONE);
+        mFormatter = new DayBucketFormatter("Today", "Tomorrow", Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void labelsTodayAndTomorrow() {
+        final long now = time(2026, Calendar.JUNE, 10, 9, 0);
+
+        assertEquals("Today", format(time(2026, Calendar.JUNE, 10, 0, 0), now));
+        assertEquals("Today", format(time(2026, Calendar.JUNE, 10, 23, 59), now));
+        assertEquals("Tomorrow", format(time(2026, Calendar.JUNE, 11, 0, 0), now));
+        assertEquals("Tomorrow", format(time(2026, Calendar.JUNE, 11, 23, 59), now));
+        assertEquals("Friday", format(time(2026, Calendar.JUNE, 12, 0, 0), now));
+    }
+
+    @Test
+    public void labelsTheShortDayWhenClocksGoForward() {
+        final long now = time(2026, Calendar.MARCH, 28, 12, 0);
+
+        assertEquals("Tomorrow", format(time(2026, Calendar.MARCH, 29, 0, 30), now));
+        assertEquals("Tomorrow", format(time(2026, Calendar.MARCH, 29, 23, 30), now));
+        assertEquals("Monday", format(time(2026, Calendar.MARCH, 30, 0, 30), now));
+
+        final long lateThatDay = time(2026, Calendar.MARCH, 29, 23, 30);
+        assertEquals("Today", format(time(2026, Calendar.MARCH, 29, 0, 10), lateThatDay));
+        assertEquals("Tomorrow", format(time(2026, Calendar.MARCH, 30, 0, 10), lateThatDay));
+    }
+
+    @Test
+    public void labelsTheLongDayWhenClocksGoBack() {
+        final long now = time(2026, Calendar.OCTOBER, 25, 0, 30);
+
+        assertEquals("Today", format(time(2026, Calendar.OCTOBER, 25, 23, 30), now));
+        assertEquals("Tomorrow", format(time(2026, Calendar.OCTOBER, 26, 0, 30), now));
+        assertEquals("Tuesday", format(time(2026, Calendar.OCTOBER, 27, 0, 30), now));
+    }
+
+    @Test
+    public void labelsDaysAcrossTheEndOfTheYear() {
+        final long now = time(2026, Calendar.DECEMBER, 31, 20, 0);
+
+        assertEquals("Today", format(time(2026, Calendar.DECEMBER, 31, 1, 0), now));
+        assertEquals("Tomorrow", format(time(2027, Calendar.JANUARY, 1, 10, 0), now));
+        assertEquals("Saturday", format(time(2027, Calendar.JANUARY, 2, 10, 0), now));
+    }
+
+    @Test
+    public void labelsDaysOutsideTheComputedDaysByTheirWeekDay() {
+        final long now = time(2026, Calendar.JUNE, 10, 9, 0);
+
+        assertEquals("Tuesday", format(time(2026, Calendar.JUNE, 9, 12, 0), now));
+        assertEquals("Friday", format(time(2026, Calendar.JUNE, 26, 12, 0), now));
+        assertEquals("Monday", format(time(2026, Calendar.AUGUST, 31, 12, 0), now));
+    }
+
+    @Test
+    public void movesOnToTheNextDay() {
+        final long timestamp = time(2026, Calendar.JUNE, 11, 12, 0);
+
+        assertEquals("Tomorrow", format(timestamp, time(2026, Calendar.JUNE, 10, 23, 59)));
+        assertEquals("Today", format(timestamp, time(2026, Calendar.JUNE, 11, 0, 0)));
+    }
+
+    @Test
+    public void tellsWhetherATimeIsToday() {
+        final long now = time(2026, Calendar.JUNE, 10, 9, 0);
+
+        assertTrue(mFormatter.isToday(time(2026, Calendar.JUNE, 10, 23, 59), now));
+        assertFalse(mFormatter.isToday(time(2026, Calendar.JUNE, 11, 0, 0), now));
+        assertFalse(mFormatter.isToday(time(2026, Calendar.JUNE, 9, 23, 59), now));
+    }
+
+    @Test
+    public void formatsLikeSimpleDateFormatAwayFromTheEndOfTheYear() {
+        final long now = time(2026, Calendar.JUNE, 10, 9, 0);
+        final long start = time(2026, Calendar.JUNE, 1, 0, 0);
+
+        for (long time = start; time < start + TimeUnit.DAYS.toMillis(40);
+             time += TimeUnit.MINUTES.toMillis(37)) {
+            assertEquals(new Date(time).toString(), formatWithSimpleDateFormat(time, now),
+                    format(time, now));
+        }
+    }
+
+    private String format(final long milliseconds, final long now) {
+        return mFormatter.format(TimeUnit.MILLISECONDS.toSeconds(milliseconds), now);
+    }
+
+    private static long time(final int year, final int month, final int day, final int hour,
+                             final int minute) {
+        final Calendar calendar = Calendar.getInstance(TIME_ZONE, Locale.US);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * The way days were labelled before, by comparing years and days of the year.
+     */
+    private static String formatWithSimpleDateFormat(final long milliseconds, final long now) {
+        final SimpleDateFormat dayInYearFormat = new SimpleDateFormat("yyyyD", Locale.US);
+        final int nowHash = Integer.parseInt(dayInYearFormat.format(new Date(now)));
+        final int comparisonHash = Integer.parseInt(dayInYearFormat.format(new Date(milliseconds)));
+
+        if (comparisonHash == nowHash) {
+            return "Today";
+        } else if (comparisonHash == nowHash + 1) {
+            return "Tomorrow";
+        } else {
+            return new SimpleDateFormat("EEEE", Locale.US).format(new Date(milliseconds));
+        }
+    }
+}
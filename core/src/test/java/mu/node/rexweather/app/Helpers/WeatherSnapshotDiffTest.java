@@ -0,0 +1,191 @@
+package mu.node.rexweather.app.Helpers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WeatherSnapshotDiffTest {
+    private static final long DAY = 24 * 60 * 60;
+    private static final WeatherCondition CLEAR = WeatherCondition.forCode(800);
+    private static final WeatherCondition RAIN = WeatherCondition.forCode(500);
+
+    private static final CurrentWeather HEADER = header(17.4f);
+
+    @Test
+    public void findsNothingToUpdateBetweenEqualSnapshots() {
+        final WeatherSnapshotDiff diff =
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 3), snapshot(1, 2, 3), false);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(Collections.<String>emptyList(), dispatch(diff));
+    }
+
+    @Test
+    public void ignoresDifferencesTooSmallToShow() {
+        final ForecastSeries forecasts = series(1, 2);
+        forecasts.append(3 * DAY, CLEAR, 10.2f, 20.4f);
+        final ForecastSeries newForecasts = series(1, 2);
+        newForecasts.append(3 * DAY, CLEAR, 9.8f, 19.6f);
+
+        final WeatherSnapshotDiff diff = WeatherSnapshotDiff.compute(
+                new WeatherSnapshot(HEADER, forecasts),
+                new WeatherSnapshot(header(17.1f), newForecasts), false);
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void removesPastDaysAndInsertsNewOnesWhenTheSeriesMovesOn() {
+        final WeatherSnapshotDiff diff =
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 3, 4, 5), snapshot(3, 4, 5, 6, 7),
+                        false);
+
+        assertFalse(diff.isEmpty());
+        assertEquals(Arrays.asList("removed 1+2", "inserted 4+2"), dispatch(diff));
+    }
+
+    @Test
+    public void replacesEveryRowOfDisjointSeries() {
+        final WeatherSnapshotDiff diff =
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 3), snapshot(4, 5), false);
+
+        assertEquals(Arrays.asList("removed 1+3", "inserted 1+2"), dispatch(diff));
+    }
+
+    @Test
+    public void findsInsertionsAndRemovalsWithinTheSeries() {
+        final WeatherSnapshotDiff diff =
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 4, 5), snapshot(1, 3, 4, 6), false);
+
+        assertEquals(Arrays.asList("removed 2+1", "inserted 2+1", "removed 4+1", "inserted 4+1"),
+                dispatch(diff));
+    }
+
+    @Test
+    public void changesOnlyTheRowsWhoseForecastsChanged() {
+        final ForecastSeries newForecasts = series(1);
+        newForecasts.append(2 * DAY, RAIN, 10, 20);
+        newForecasts.append(3 * DAY, CLEAR, 10, 25);
+        newForecasts.append(4 * DAY, CLEAR, 10, 20);
+
+        final WeatherSnapshotDiff diff = WeatherSnapshotDiff.compute(snapshot(1, 2, 3, 4),
+                new WeatherSnapshot(HEADER, newForecasts), false);
+
+        assertEquals(Arrays.asList("changed 2+2"), dispatch(diff));
+    }
+
+    @Test
+    public void updatesTheHeaderAheadOfTheForecasts() {
+        assertEquals(Arrays.asList("inserted 0+1"), dispatch(WeatherSnapshotDiff.compute(
+                new WeatherSnapshot(null, series(1, 2)), snapshot(1, 2), false)));
+        assertEquals(Arrays.asList("removed 0+1", "inserted 2+1"),
+                dispatch(WeatherSnapshotDiff.compute(snapshot(1, 2),
+                        new WeatherSnapshot(null, series(1, 2, 3)), false)));
+        assertEquals(Arrays.asList("changed 0+1", "removed 1+1"),
+                dispatch(WeatherSnapshotDiff.compute(snapshot(1, 2),
+                        new WeatherSnapshot(header(25), series(2)), false)));
+    }
+
+    @Test
+    public void changesEveryRemainingRowWhenTheDaysAreRelabelled() {
+        assertEquals(Arrays.asList("changed 1+3"), dispatch(
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 3), snapshot(1, 2, 3), true)));
+        assertEquals(Arrays.asList("removed 1+1", "changed 1+2", "inserted 3+1"), dispatch(
+                WeatherSnapshotDiff.compute(snapshot(1, 2, 3), snapshot(2, 3, 4), true)));
+    }
+
+    @Test
+    public void turnsTheOldRowsIntoTheNewOnes() {
+        final long[][] days = {{1, 2, 4, 5, 8}, {2, 3, 4, 6, 7, 8, 9}, {}, {5}, {1, 9}};
+
+        for (final long[] oldDays : days) {
+            for (final long[] newDays : days) {
+                final List<Long> rows = rows(oldDays);
+                final List<Long> newRows = rows(newDays);
+                WeatherSnapshotDiff.compute(snapshot(oldDays), snapshot(newDays), false)
+                        .dispatchTo(new WeatherSnapshotDiff.Callback() {
+                            @Override
+                            public void notifyItemRangeInserted(final int position,
+                                                                final int count) {
+                                rows.addAll(position, newRows.subList(position,
+                                        position + count));
+                            }
+
+                            @Override
+                            public void notifyItemRangeRemoved(final int position,
+                                                               final int count) {
+                                rows.subList(position, position + count).clear();
+                            }
+
+                            @Override
+                            public void notifyItemRangeChanged(final int position,
+                                                               final int count) {
+                            }
+                        });
+
+                assertEquals(newRows, rows);
+            }
+        }
+    }
+
+    private static List<String> dispatch(final WeatherSnapshotDiff diff) {
+        final List<String> updates = new ArrayList<>();
+        diff.dispatchTo(new WeatherSnapshotDiff.Callback() {
+            @Override
+            public void notifyItemRangeInserted(final int position, final int count) {
+                updates.add("inserted " + position + "+" + count);
+            }
+
+            @Override
+            public void notifyItemRangeRemoved(final int position, final int count) {
+                updates.add("removed " + position + "+" + count);
+            }
+
+            @Override
+            public void notifyItemRangeChanged(final int position, final int count) {
+                updates.add("changed " + position + "+" + count);
+            }
+        });
+        return updates;
+    }
+
+    /**
+     * The rows an adapter shows for a snapshot: the header, then one per forecast day.
+     */
+    private static List<Long> rows(final long... days) {
+        final List<Long> rows = new ArrayList<>();
+        rows.add(0L);
+        for (final long day : days) {
+            rows.add(day);
+        }
+        return rows;
+    }
+
+    private static WeatherSnapshot snapshot(final long... days) {
+        return new WeatherSnapshot(HEADER, series(days));
+    }
+
+    private static ForecastSeries series(final long... days) {
+        final ForecastSeries forecasts = new ForecastSeries("London");
+        for (final long day : days) {
+            forecasts.append(day * DAY, CLEAR, 10, 20);
+        }
+        return forecasts;
+    }
+
+    private static CurrentWeather header(final float temperature) {
+        return new CurrentWeather(2643743, "London", 0, CLEAR, temperature, 10, 20);
+    }
+}
@@ -0,0 +1,99 @@
+package mu.node.rexweather.app.Models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ForecastSeriesTest {
+    private static final float DELTA = 0.001f;
+    private static final WeatherCondition CLEAR = WeatherCondition.forCode(800);
+    private static final WeatherCondition RAIN = WeatherCondition.forCode(500);
+
+    @Test
+    public void growsAsForecastsAreAppended() {
+        final ForecastSeries series = series(20);
+
+        assertEquals(20, series.size());
+        assertEquals(19, series.getTimestamp(19));
+        assertSame(RAIN, series.getCondition(19));
+        assertEquals(9, series.getMinimumTemperature(19), DELTA);
+        assertEquals(29, series.getMaximumTemperature(19), DELTA);
+    }
+
+    @Test
+    public void windowsOntoPartOfTheSeries() {
+        final ForecastSeries window = series(10).window(3, 4);
+
+        assertEquals("London", window.getLocationName());
+        assertEquals(4, window.size());
+        assertEquals(3, window.getTimestamp(0));
+        assertEquals(6, window.getTimestamp(3));
+        assertEquals(5, window.window(1, 2).getTimestamp(1));
+        expectOutOfBounds(window, 4);
+        expectOutOfBounds(window, -1);
+    }
+
+    @Test
+    public void keepsTheForecastsUnderADifferentLocationName() {
+        final ForecastSeries renamed = series(3).withLocationName("Paris");
+
+        assertEquals("Paris", renamed.getLocationName());
+        assertEquals(3, renamed.size());
+        assertEquals(2, renamed.getTimestamp(2));
+    }
+
+    @Test
+    public void becomesReadOnlyOnceAWindowIsTaken() {
+        final ForecastSeries series = series(4);
+        final ForecastSeries window = series.window(0, 4);
+
+        expectReadOnly(series);
+        expectReadOnly(window);
+        assertEquals(4, window.size());
+    }
+
+    @Test
+    public void becomesReadOnlyOnceRenamed() {
+        final ForecastSeries series = series(4);
+        final ForecastSeries renamed = series.withLocationName("Paris");
+
+        expectReadOnly(series);
+        expectReadOnly(renamed);
+        assertEquals(3, series.getTimestamp(3));
+        assertEquals(3, renamed.getTimestamp(3));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void refusesWindowsOutsideTheSeries() {
+        series(4).window(2, 3);
+    }
+
+    /**
+     * A series of forecasts whose timestamps are their indices.
+     */
+    private static ForecastSeries series(final int size) {
+        final ForecastSeries series = new ForecastSeries("London", 1);
+        for (int i = 0; i < size; i++) {
+            series.append(i, i % 2 == 0 ? CLEAR : RAIN, i - 10, i + 10);
+        }
+        return series;
+    }
+
+    private static void expectReadOnly(final ForecastSeries series) {
+        try {
+            series.append(100, CLEAR, 0, 0);
+            fail("Appended to a shared series");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static void expectOutOfBounds(final ForecastSeries series, final int index) {
+        try {
+            series.getTimestamp(index);
+            fail("Read forecast " + index + " of " + series.size());
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+}
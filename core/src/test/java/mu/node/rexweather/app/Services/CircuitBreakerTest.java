@@ -0,0 +1,108 @@
+package mu.node.rexweather.app.Services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MILLISECONDS = 30000;
+
+    private long mNow = 1000;
+    private final CircuitBreaker mCircuitBreaker = new CircuitBreaker(new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    }, FAILURE_THRESHOLD, OPEN_MILLISECONDS);
+
+    @Test
+    public void staysClosedBelowTheThreshold() {
+        fail(FAILURE_THRESHOLD - 1);
+
+        assertFalse(mCircuitBreaker.isOpen());
+        assertTrue(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void countsOnlyConsecutiveFailures() {
+        fail(FAILURE_THRESHOLD - 1);
+        mCircuitBreaker.onSuccess();
+        fail(FAILURE_THRESHOLD - 1);
+
+        assertFalse(mCircuitBreaker.isOpen());
+    }
+
+    @Test
+    public void opensAtTheThresholdForTheOpenPeriod() {
+        fail(FAILURE_THRESHOLD);
+
+        assertTrue(mCircuitBreaker.isOpen());
+        assertFalse(mCircuitBreaker.allowRequest());
+
+        mNow += OPEN_MILLISECONDS - 1;
+        assertFalse(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void letsASingleTrialRequestThroughOnceTheOpenPeriodHasPassed() {
+        fail(FAILURE_THRESHOLD);
+        mNow += OPEN_MILLISECONDS;
+
+        assertTrue(mCircuitBreaker.allowRequest());
+        assertFalse(mCircuitBreaker.allowRequest());
+        assertTrue(mCircuitBreaker.isOpen());
+    }
+
+    @Test
+    public void closesOnceTheTrialRequestSucceeds() {
+        fail(FAILURE_THRESHOLD);
+        mNow += OPEN_MILLISECONDS;
+        mCircuitBreaker.allowRequest();
+        mCircuitBreaker.onSuccess();
+
+        assertFalse(mCircuitBreaker.isOpen());
+        assertTrue(mCircuitBreaker.allowRequest());
+        assertTrue(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void opensForAnotherPeriodOnceTheTrialRequestFails() {
+        fail(FAILURE_THRESHOLD);
+        mNow += OPEN_MILLISECONDS;
+        mCircuitBreaker.allowRequest();
+        mCircuitBreaker.onFailure();
+
+        mNow += OPEN_MILLISECONDS - 1;
+        assertFalse(mCircuitBreaker.allowRequest());
+
+        mNow += 1;
+        assertTrue(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void givesUpOnATrialRequestThatNeverReportsBack() {
+        fail(FAILURE_THRESHOLD);
+        mNow += OPEN_MILLISECONDS;
+        mCircuitBreaker.allowRequest();
+
+        mNow += OPEN_MILLISECONDS;
+        assertTrue(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void staysOpenIfTheClockStepsBack() {
+        fail(FAILURE_THRESHOLD);
+        mNow -= OPEN_MILLISECONDS;
+
+        assertFalse(mCircuitBreaker.allowRequest());
+    }
+
+    private void fail(final int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(mCircuitBreaker.allowRequest());
+            mCircuitBreaker.onFailure();
+        }
+    }
+}
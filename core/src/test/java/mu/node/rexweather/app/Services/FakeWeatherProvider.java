@@ -0,0 +1,109 @@
+package mu.node.rexweather.app.Services;
+
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func1;
+
+/**
+ * A weather provider that answers after an injected latency, measured on the given scheduler,
+ * or fails. Its answers carry its name as their location name, to tell who answered.
+ */
+public class FakeWeatherProvider implements WeatherProvider {
+    private final String mName;
+    private final Scheduler mScheduler;
+
+    private volatile long mLatencyMilliseconds;
+    private volatile Throwable mError;
+    private volatile int mRequestCount;
+    private volatile int mCancelledCount;
+
+    public FakeWeatherProvider(final String name, final Scheduler scheduler) {
+        mName = name;
+        mScheduler = scheduler;
+    }
+
+    public void setLatency(final long milliseconds) {
+        mLatencyMilliseconds = milliseconds;
+    }
+
+    /**
+     * Fail requests with the given error after the latency, or answer them again if null.
+     */
+    public void setError(final Throwable error) {
+        mError = error;
+    }
+
+    public int getRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * How many requests were unsubscribed from before they answered.
+     */
+    public int getCancelledCount() {
+        return mCancelledCount;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public Observable<CurrentWeather> fetchCurrentWeather(final double longitude,
+                                                          final double latitude,
+                                                          final String cacheControl) {
+        return answer(new CurrentWeather(0, mName, 0, WeatherCondition.forCode(800), 20, 18, 22));
+    }
+
+    @Override
+    public Observable<ForecastSeries> fetchWeatherForecasts(final double longitude,
+                                                            final double latitude,
+                                                            final String cacheControl) {
+        return answer(new ForecastSeries(mName, 0));
+    }
+
+    @Override
+    public Observable<HourlyForecast> fetchHourlyForecasts(final double longitude,
+                                                           final double latitude,
+                                                           final String cacheControl) {
+        return answer(new HourlyForecast(new ForecastSeries(mName, 0),
+                new ForecastSeries(mName, 0)));
+    }
+
+    private <T> Observable<T> answer(final T result) {
+        final boolean[] isAnswered = {false};
+
+        return Observable.timer(mLatencyMilliseconds, TimeUnit.MILLISECONDS, mScheduler)
+                .flatMap(new Func1<Long, Observable<T>>() {
+                    @Override
+                    public Observable<T> call(final Long ignored) {
+                        isAnswered[0] = true;
+                        final Throwable error = mError;
+                        return error != null ? Observable.<T>error(error) : Observable.just(result);
+                    }
+                })
+                .doOnSubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        isAnswered[0] = false;
+                        mRequestCount++;
+                    }
+                })
+                .doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        if (!isAnswered[0]) {
+                            mCancelledCount++;
+                        }
+                    }
+                });
+    }
+}
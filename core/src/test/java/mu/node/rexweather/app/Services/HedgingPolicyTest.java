@@ -0,0 +1,177 @@
+package mu.node.rexweather.app.Services;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.SocketPolicy;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import retrofit.RestAdapter;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingPolicyTest {
+    private static final String ENDPOINT = "primary/weather";
+    private static final long DEFAULT_HEDGE_DELAY = 2000;
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final HedgingPolicy mHedgingPolicy = new HedgingPolicy(mScheduler);
+    private final FakeWeatherProvider mPrimary = new FakeWeatherProvider("primary", mScheduler);
+    private final FakeWeatherProvider mSecondary =
+            new FakeWeatherProvider("secondary", mScheduler);
+
+    @Test
+    public void doesNotHedgeAFastPrimary() {
+        mPrimary.setLatency(100);
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertAnsweredBy(mPrimary, subscriber);
+        assertEquals(0, mSecondary.getRequestCount());
+    }
+
+    @Test
+    public void hedgesASlowPrimaryAfterTheDelay() {
+        mPrimary.setLatency(5000);
+        mSecondary.setLatency(100);
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(DEFAULT_HEDGE_DELAY - 1, TimeUnit.MILLISECONDS);
+        assertEquals(0, mSecondary.getRequestCount());
+
+        mScheduler.advanceTimeBy(101, TimeUnit.MILLISECONDS);
+        assertAnsweredBy(mSecondary, subscriber);
+        assertEquals(1, mPrimary.getCancelledCount());
+    }
+
+    @Test
+    public void keepsThePrimaryIfItAnswersFirstAfterAll() {
+        mPrimary.setLatency(2500);
+        mSecondary.setLatency(1000);
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertAnsweredBy(mPrimary, subscriber);
+        assertEquals(1, mSecondary.getCancelledCount());
+    }
+
+    @Test
+    public void hedgesAtOnceWhenThePrimaryFails() {
+        mPrimary.setLatency(10);
+        mPrimary.setError(new WebServiceException(503, "busy"));
+        mSecondary.setLatency(100);
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(110, TimeUnit.MILLISECONDS);
+
+        assertAnsweredBy(mSecondary, subscriber);
+    }
+
+    @Test
+    public void passesOnThePrimaryErrorWhenBothFail() {
+        final WebServiceException primaryError = new WebServiceException(503, "busy");
+        mPrimary.setError(primaryError);
+        mSecondary.setError(new WebServiceException(500, "broken"));
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        subscriber.assertError(primaryError);
+        assertEquals(1, mSecondary.getRequestCount());
+    }
+
+    @Test
+    public void hedgesAfterThePrimarysObservedLatency() {
+        mPrimary.setLatency(300);
+        for (int i = 0; i < 20; i++) {
+            fetch();
+            mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        }
+        assertEquals(300, mHedgingPolicy.getHedgeDelay(ENDPOINT));
+
+        mPrimary.setLatency(1000);
+        mSecondary.setLatency(100);
+        final TestSubscriber<CurrentWeather> subscriber = fetch();
+
+        mScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+        assertAnsweredBy(mSecondary, subscriber);
+        assertEquals(0, mSecondary.getCancelledCount());
+    }
+
+    /**
+     * A losing request to a real web service must give its I/O thread back straight away,
+     * rather than once the read times out, so that lost races never starve other requests.
+     */
+    @Test
+    public void freesTheThreadOfALosingWebServiceRequest() throws Exception {
+        final MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.start();
+
+        try {
+            final WeatherMetrics metrics = new WeatherMetrics();
+            final NetworkStack networkStack =
+                    new NetworkStack(mTemporaryFolder.getRoot(), metrics);
+            final OpenWeatherMapProvider primary = new OpenWeatherMapProvider("primary",
+                    server.getUrl("/").toString(), networkStack, metrics);
+            primary.setLogLevel(RestAdapter.LogLevel.NONE);
+
+            final TestSubscriber<CurrentWeather> subscriber = new TestSubscriber<>();
+            mHedgingPolicy.hedge(ENDPOINT, primary.fetchCurrentWeather(57.5, -20.2, null),
+                    mSecondary.fetchCurrentWeather(57.5, -20.2, null)).subscribe(subscriber);
+
+            // Only hedge once the primary is blocked reading the response, which interrupting its
+            // thread does not wake. An interrupt any earlier would stop the request by itself.
+            assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            mScheduler.advanceTimeBy(DEFAULT_HEDGE_DELAY, TimeUnit.MILLISECONDS);
+            assertAnsweredBy(mSecondary, subscriber);
+
+            final ThreadPoolExecutor ioExecutor =
+                    (ThreadPoolExecutor) networkStack.getIoExecutor();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (ioExecutor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, ioExecutor.getActiveCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private TestSubscriber<CurrentWeather> fetch() {
+        final TestSubscriber<CurrentWeather> subscriber = new TestSubscriber<>();
+        final Observable<CurrentWeather> request = mHedgingPolicy.hedge(ENDPOINT,
+                mPrimary.fetchCurrentWeather(57.5, -20.2, null),
+                mSecondary.fetchCurrentWeather(57.5, -20.2, null));
+        request.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static void assertAnsweredBy(final FakeWeatherProvider provider,
+                                         final TestSubscriber<CurrentWeather> subscriber) {
+        subscriber.assertNoErrors();
+        subscriber.assertTerminalEvent();
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(provider.getName(),
+                subscriber.getOnNextEvents().get(0).getLocationName());
+        assertTrue(provider.getRequestCount() > 0);
+    }
+}
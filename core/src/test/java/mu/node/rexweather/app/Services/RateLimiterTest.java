@@ -0,0 +1,176 @@
+package mu.node.rexweather.app.Services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateLimiterTest {
+    private static final double PERMITS_PER_SECOND = 1;
+    private static final int BURST_SIZE = 2;
+    private static final int MAXIMUM_QUEUE_LENGTH = 2;
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mScheduler.now() + mClockOffset;
+        }
+    };
+
+    // How far the clock has been set away from the scheduler's time.
+    private long mClockOffset;
+
+    private final RateLimiter mRateLimiter = new RateLimiter(PERMITS_PER_SECOND, BURST_SIZE,
+            MAXIMUM_QUEUE_LENGTH, mClock, mScheduler, new WeatherMetrics());
+
+    // The requests that were let through, in order, and when.
+    private final List<String> mStarted = new ArrayList<>();
+    private final List<Long> mStartTimes = new ArrayList<>();
+
+    @Test
+    public void letsABurstThroughStraightAway() {
+        request("first", RateLimiter.Priority.BULK);
+        request("second", RateLimiter.Priority.BULK);
+        request("third", RateLimiter.Priority.BULK);
+
+        assertEquals(Arrays.asList("first", "second"), mStarted);
+    }
+
+    @Test
+    public void letsRequestsThroughAtTheRateOnceTheBurstIsUsedUp() {
+        useUpTheBurst();
+        request("first", RateLimiter.Priority.FOREGROUND);
+        request("second", RateLimiter.Priority.FOREGROUND);
+
+        advance(999);
+        assertEquals(0, mStarted.size());
+
+        advance(1001);
+        assertEquals(Arrays.asList("first", "second"), mStarted);
+        assertEquals(Arrays.asList(1000L, 2000L), mStartTimes);
+    }
+
+    @Test
+    public void refillsNoMoreThanTheBurst() {
+        useUpTheBurst();
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        request("first", RateLimiter.Priority.BULK);
+        request("second", RateLimiter.Priority.BULK);
+        request("third", RateLimiter.Priority.BULK);
+
+        assertEquals(Arrays.asList("first", "second"), mStarted);
+    }
+
+    @Test
+    public void letsTheMostUrgentRequestsThroughFirst() {
+        useUpTheBurst();
+        request("bulk", RateLimiter.Priority.BULK);
+        request("background", RateLimiter.Priority.BACKGROUND);
+        request("first foreground", RateLimiter.Priority.FOREGROUND);
+        request("second foreground", RateLimiter.Priority.FOREGROUND);
+
+        advance(4000);
+
+        assertEquals(Arrays.asList("first foreground", "second foreground", "background",
+                "bulk"), mStarted);
+    }
+
+    @Test
+    public void shedsBackgroundAndBulkRequestsOnceTheirQueueIsFull() {
+        useUpTheBurst();
+        for (final RateLimiter.Priority priority : Arrays.asList(RateLimiter.Priority.BACKGROUND,
+                RateLimiter.Priority.BULK)) {
+            request("queued", priority);
+            request("queued", priority);
+
+            final TestSubscriber<String> shed = request("shed", priority);
+            shed.assertError(RequestShedException.class);
+        }
+
+        advance(TimeUnit.MINUTES.toMillis(1));
+        assertEquals(4, mStarted.size());
+    }
+
+    @Test
+    public void neverShedsForegroundRequests() {
+        useUpTheBurst();
+        final List<TestSubscriber<String>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 5 * MAXIMUM_QUEUE_LENGTH; i++) {
+            subscribers.add(request("foreground", RateLimiter.Priority.FOREGROUND));
+        }
+
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        for (final TestSubscriber<String> subscriber : subscribers) {
+            subscriber.assertNoErrors();
+            subscriber.assertValue("foreground");
+        }
+    }
+
+    @Test
+    public void givesUpTheQueuedPlaceOfAnUnsubscribedRequest() {
+        useUpTheBurst();
+        final TestSubscriber<String> cancelled = request("cancelled", RateLimiter.Priority.BULK);
+        request("next", RateLimiter.Priority.BULK);
+        cancelled.unsubscribe();
+
+        // The place it held in the full queue is free again.
+        request("last", RateLimiter.Priority.BULK).assertNoErrors();
+
+        advance(2000);
+        assertEquals(Arrays.asList("next", "last"), mStarted);
+        assertEquals(Arrays.asList(1000L, 2000L), mStartTimes);
+    }
+
+    @Test
+    public void keepsLettingRequestsThroughIfTheClockStepsBack() {
+        useUpTheBurst();
+        mClockOffset = -TimeUnit.HOURS.toMillis(1);
+        request("first", RateLimiter.Priority.FOREGROUND);
+
+        advance(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(Arrays.asList("first"), mStarted);
+    }
+
+    /**
+     * Take every permit, so that later requests have to wait.
+     */
+    private void useUpTheBurst() {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            request("burst", RateLimiter.Priority.FOREGROUND);
+        }
+        mStarted.clear();
+        mStartTimes.clear();
+    }
+
+    private TestSubscriber<String> request(final String name,
+                                           final RateLimiter.Priority priority) {
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        Observable.defer(new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                mStarted.add(name);
+                mStartTimes.add(mScheduler.now());
+                return Observable.just(name);
+            }
+        }).compose(mRateLimiter.<String>limit(priority)).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private void advance(final long milliseconds) {
+        mScheduler.advanceTimeBy(milliseconds, TimeUnit.MILLISECONDS);
+    }
+}
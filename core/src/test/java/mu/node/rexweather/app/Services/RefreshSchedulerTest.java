@@ -0,0 +1,336 @@
+package mu.node.rexweather.app.Services;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Metrics.WeatherMetrics;
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+import retrofit.RestAdapter;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func2;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class RefreshSchedulerTest {
+    private static final long CADENCE = TimeUnit.MINUTES.toMillis(30);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mScheduler.now() + mClockOffset;
+        }
+    };
+
+    // How far the clock has been set away from the scheduler's time.
+    private long mClockOffset;
+
+    // What each refresh answers, in order. Refreshes beyond these never answer.
+    private final Queue<Observable<WeatherSnapshot>> mAnswers = new ArrayDeque<>();
+    private final List<Long> mRefreshTimes = new ArrayList<>();
+    private final List<WeatherSnapshot> mUpdates = new ArrayList<>();
+
+    private RefreshScheduler mRefreshScheduler;
+
+    @Before
+    public void setUp() {
+        mRefreshScheduler = newRefreshScheduler(new Func0<Observable<WeatherSnapshot>>() {
+            @Override
+            public Observable<WeatherSnapshot> call() {
+                mRefreshTimes.add(mScheduler.now());
+                return !mAnswers.isEmpty() ? mAnswers.poll() : Observable.<WeatherSnapshot>never();
+            }
+        });
+    }
+
+    @Test
+    public void refreshesAtTheCadence() {
+        answer(weather(20), weather(20), weather(20));
+        mRefreshScheduler.start();
+
+        advance(3 * CADENCE);
+
+        assertEquals(Arrays.asList(CADENCE, 2 * CADENCE, 3 * CADENCE), mRefreshTimes);
+    }
+
+    @Test
+    public void waitsOutTheCadenceAfterASnapshotShownElsewhere() {
+        answer(weather(20));
+        mRefreshScheduler.start();
+
+        advance(20 * MINUTE);
+        mRefreshScheduler.onSnapshotShown(snapshot(20));
+        advance(CADENCE);
+
+        assertEquals(Arrays.asList(20 * MINUTE + CADENCE), mRefreshTimes);
+    }
+
+    @Test
+    public void waitsOutNoMoreThanACadenceIfTheClockStepsBack() {
+        answer(weather(20));
+        mRefreshScheduler.start();
+
+        advance(20 * MINUTE);
+        mRefreshScheduler.onSnapshotShown(snapshot(20));
+        mClockOffset = -TimeUnit.DAYS.toMillis(1);
+        advance(2 * CADENCE);
+
+        assertEquals(Arrays.asList(2 * CADENCE), mRefreshTimes);
+    }
+
+    @Test
+    public void backsOffFromOneMinuteToTwoHoursWhileTheWebServiceFails() {
+        final Observable<WeatherSnapshot> failure =
+                Observable.error(new WebServiceException(503, "busy"));
+        for (int i = 0; i < 9; i++) {
+            answer(failure);
+        }
+        mRefreshScheduler.start();
+
+        advance(TimeUnit.HOURS.toMillis(10));
+
+        assertEquals(Arrays.asList(1L, 2L, 4L, 8L, 16L, 32L, 64L, 120L, 120L),
+                minutesBetween(mRefreshTimes));
+    }
+
+    @Test
+    public void backsOffWhileTheWebServiceTimesOut() {
+        final ResiliencePolicy resiliencePolicy =
+                new ResiliencePolicy(mClock, mScheduler, new Random(0));
+        final Observable<WeatherSnapshot> timeout = Observable.<WeatherSnapshot>never()
+                .compose(resiliencePolicy.<WeatherSnapshot>guard("test/weather", 8000));
+        answer(timeout, timeout, timeout);
+        mRefreshScheduler.start();
+
+        advance(2 * CADENCE);
+
+        // Each refresh gives up after a few seconds of attempts, then backs off.
+        assertEquals(Arrays.asList(1L, 2L, 4L), minutesBetween(mRefreshTimes));
+    }
+
+    @Test
+    public void resetsTheBackoffOnceARefreshSucceeds() {
+        final Observable<WeatherSnapshot> failure =
+                Observable.error(new WebServiceException(503, "busy"));
+        answer(failure, failure, weather(20), failure, weather(20));
+        mRefreshScheduler.start();
+
+        advance(3 * CADENCE);
+
+        assertEquals(Arrays.asList(1L, 2L, 30L, 1L), minutesBetween(mRefreshTimes));
+    }
+
+    @Test
+    public void retriesOtherFailuresAtTheCadence() {
+        final Observable<WeatherSnapshot> failure =
+                Observable.error(new IllegalStateException("no location fix"));
+        answer(failure, failure, failure);
+        mRefreshScheduler.start();
+
+        advance(3 * CADENCE);
+
+        assertEquals(Arrays.asList(30L, 30L), minutesBetween(mRefreshTimes));
+    }
+
+    @Test
+    public void passesOnOnlySnapshotsThatChangeWhatIsShown() {
+        final WeatherSnapshot first = snapshot(20);
+        final WeatherSnapshot unchanged = snapshot(20.2f);
+        final WeatherSnapshot changed = snapshot(23);
+        answer(Observable.just(first), Observable.just(unchanged), Observable.just(changed));
+        mRefreshScheduler.start();
+
+        advance(3 * CADENCE);
+
+        assertEquals(3, mRefreshTimes.size());
+        assertEquals(Arrays.asList(first, changed), mUpdates);
+    }
+
+    @Test
+    public void comparesAgainstASnapshotShownElsewhere() {
+        answer(weather(20));
+        mRefreshScheduler.start();
+
+        mRefreshScheduler.onSnapshotShown(snapshot(20));
+        advance(CADENCE);
+
+        assertEquals(1, mRefreshTimes.size());
+        assertEquals(0, mUpdates.size());
+    }
+
+    @Test
+    public void stopsRefreshing() {
+        answer(weather(20), weather(20));
+        mRefreshScheduler.start();
+
+        advance(CADENCE);
+        mRefreshScheduler.stop();
+        advance(CADENCE);
+
+        assertEquals(1, mRefreshTimes.size());
+    }
+
+    /**
+     * Refresh from a stand-in for the web service, through the real provider and HTTP stack.
+     */
+    @Test
+    public void refreshesFromTheWebService() throws Exception {
+        final WeatherServer weatherServer = new WeatherServer();
+        final MockWebServer server = new MockWebServer();
+        server.setDispatcher(weatherServer);
+        server.start();
+
+        try {
+            final WeatherMetrics metrics = new WeatherMetrics();
+            final OpenWeatherMapProvider provider = new OpenWeatherMapProvider("test",
+                    server.getUrl("/").toString(),
+                    new NetworkStack(mTemporaryFolder.getRoot(), metrics), metrics);
+            provider.setLogLevel(RestAdapter.LogLevel.NONE);
+
+            mRefreshScheduler = newRefreshScheduler(new Func0<Observable<WeatherSnapshot>>() {
+                @Override
+                public Observable<WeatherSnapshot> call() {
+                    mRefreshTimes.add(mScheduler.now());
+                    return awaitOnSubscribe(Observable.zip(
+                            provider.fetchCurrentWeather(57.5, -20.2, "no-cache"),
+                            provider.fetchWeatherForecasts(57.5, -20.2, "no-cache"),
+                            new Func2<CurrentWeather, ForecastSeries, WeatherSnapshot>() {
+                                @Override
+                                public WeatherSnapshot call(final CurrentWeather currentWeather,
+                                                            final ForecastSeries forecasts) {
+                                    return new WeatherSnapshot(currentWeather, forecasts);
+                                }
+                            }));
+                }
+            });
+            mRefreshScheduler.start();
+
+            // The first snapshot is passed on, the same weather again is not.
+            advance(2 * CADENCE);
+            assertEquals(1, mUpdates.size());
+            assertEquals("Port Louis", mUpdates.get(0).getCurrentWeather().getLocationName());
+
+            // The service failing backs off, and new weather is passed on once it recovers.
+            weatherServer.mCode = 503;
+            advance(CADENCE);
+            weatherServer.mCode = 200;
+            weatherServer.mTemperature = 27;
+            advance(MINUTE);
+
+            assertEquals(Arrays.asList(30L, 30L, 1L), minutesBetween(mRefreshTimes));
+            assertEquals(2, mUpdates.size());
+            assertEquals(27, mUpdates.get(1).getCurrentWeather().getTemperature(), 0);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private RefreshScheduler newRefreshScheduler(final Func0<Observable<WeatherSnapshot>> refresh) {
+        return new RefreshScheduler(refresh, new Action1<WeatherSnapshot>() {
+            @Override
+            public void call(final WeatherSnapshot snapshot) {
+                mUpdates.add(snapshot);
+            }
+        }, mClock, mScheduler, CADENCE);
+    }
+
+    @SafeVarargs
+    private final void answer(final Observable<WeatherSnapshot>... answers) {
+        for (final Observable<WeatherSnapshot> answer : answers) {
+            mAnswers.add(answer);
+        }
+    }
+
+    private void advance(final long milliseconds) {
+        mScheduler.advanceTimeBy(milliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<Long> minutesBetween(final List<Long> times) {
+        final List<Long> minutes = new ArrayList<>();
+        for (int i = 1; i < times.size(); i++) {
+            minutes.add(TimeUnit.MILLISECONDS.toMinutes(times.get(i) - times.get(i - 1)));
+        }
+        return minutes;
+    }
+
+    private static Observable<WeatherSnapshot> weather(final float temperature) {
+        return Observable.just(snapshot(temperature));
+    }
+
+    private static WeatherSnapshot snapshot(final float temperature) {
+        final ForecastSeries forecasts = new ForecastSeries("Port Louis", 1);
+        forecasts.append(1000, WeatherCondition.forCode(800), temperature - 2, temperature + 2);
+        return new WeatherSnapshot(new CurrentWeather(934154, "Port Louis", 1000,
+                WeatherCondition.forCode(800), temperature, temperature - 2, temperature + 2),
+                forecasts);
+    }
+
+    /**
+     * Wait for a request made on other threads as soon as it is subscribed to, so that the test
+     * scheduler's clock only moves on once a refresh has finished.
+     */
+    private static <T> Observable<T> awaitOnSubscribe(final Observable<T> request) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                return Observable.from(request.materialize().toList().toBlocking().single())
+                        .<T>dematerialize();
+            }
+        });
+    }
+
+    /**
+     * Answers like the Open Weather Map web service, with a code and temperature set by the
+     * test.
+     */
+    private static class WeatherServer extends Dispatcher {
+        volatile int mCode = 200;
+        volatile float mTemperature = 20;
+
+        @Override
+        public MockResponse dispatch(final RecordedRequest request) {
+            if (mCode != 200) {
+                return json("{\"cod\":" + mCode + ",\"message\":\"busy\"}");
+            } else if (request.getPath().startsWith("/weather")) {
+                return json("{\"cod\":200,\"id\":934154,\"name\":\"Port Louis\",\"dt\":1000,"
+                        + "\"weather\":[{\"id\":800}],\"main\":{\"temp\":" + mTemperature
+                        + ",\"temp_min\":18,\"temp_max\":29}}");
+            } else {
+                return json("{\"cod\":\"200\",\"city\":{\"name\":\"Port Louis\"},\"list\":["
+                        + "{\"dt\":1000,\"weather\":[{\"id\":800}],"
+                        + "\"temp\":{\"min\":18,\"max\":29}}]}");
+            }
+        }
+
+        private static MockResponse json(final String body) {
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(body);
+        }
+    }
+}
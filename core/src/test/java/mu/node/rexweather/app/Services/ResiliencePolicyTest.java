@@ -0,0 +1,207 @@
+package mu.node.rexweather.app.Services;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResiliencePolicyTest {
+    private static final String ENDPOINT = "test/weather";
+    private static final long TIMEOUT = 1000;
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mScheduler.now();
+        }
+    };
+
+    // When each attempt was subscribed to and unsubscribed from.
+    private final List<Long> mAttemptTimes = new ArrayList<>();
+    private final List<Long> mCancelTimes = new ArrayList<>();
+
+    @Test
+    public void retriesTransientErrorsTwice() {
+        final TestSubscriber<String> subscriber =
+                guard(policy(0.5), failing(new IOException("reset")));
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(3, mAttemptTimes.size());
+        subscriber.assertError(IOException.class);
+    }
+
+    @Test
+    public void passesOnOtherErrorsStraightAway() {
+        final TestSubscriber<String> subscriber =
+                guard(policy(0.5), failing(new WebServiceException(404, "city not found")));
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(1, mAttemptTimes.size());
+        subscriber.assertError(WebServiceException.class);
+    }
+
+    @Test
+    public void waitsAtLeastTheBaseDelayBetweenAttempts() {
+        guard(policy(0), failing(new IOException("reset")));
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(Arrays.asList(0L, 500L, 1000L), mAttemptTimes);
+    }
+
+    @Test
+    public void waitsAtMostThreeTimesThePreviousDelayBetweenAttempts() {
+        guard(policy(1), failing(new IOException("reset")));
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        // 500 ms to start with, then up to 1500 ms and 4500 ms.
+        assertEquals(Arrays.asList(0L, 1500L, 6000L), mAttemptTimes);
+    }
+
+    @Test
+    public void unsubscribesFromAttemptsThatTimeOut() {
+        final TestSubscriber<String> subscriber = guard(policy(0), hanging());
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(Arrays.asList(0L, 1500L, 3000L), mAttemptTimes);
+        assertEquals(Arrays.asList(1000L, 2500L, 4000L), mCancelTimes);
+        subscriber.assertError(WebServiceTimeoutException.class);
+    }
+
+    @Test
+    public void admitsEveryAttemptAndStartsItsTimeoutOnceAdmitted() {
+        final int[] admissions = {0};
+        final ResiliencePolicy resiliencePolicy = policy(0);
+        final Observable.Transformer<String, String> admission =
+                new Observable.Transformer<String, String>() {
+                    @Override
+                    public Observable<String> call(final Observable<String> attempt) {
+                        admissions[0]++;
+                        return attempt.delaySubscription(5000, TimeUnit.MILLISECONDS,
+                                mScheduler);
+                    }
+                };
+
+        hanging().compose(resiliencePolicy.guard(ENDPOINT, TIMEOUT, admission))
+                .subscribe(new TestSubscriber<String>());
+        advance(TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(3, admissions[0]);
+        assertEquals(Arrays.asList(5000L, 11500L, 18000L), mAttemptTimes);
+        assertEquals(Arrays.asList(6000L, 12500L, 19000L), mCancelTimes);
+    }
+
+    @Test
+    public void failsFastWhileTheCircuitIsOpen() {
+        final ResiliencePolicy resiliencePolicy = policy(0);
+        for (int i = 0; i < 2; i++) {
+            guard(resiliencePolicy, failing(new IOException("reset")));
+            advance(TimeUnit.SECONDS.toMillis(10));
+        }
+        assertTrue(resiliencePolicy.getCircuitBreaker(ENDPOINT).isOpen());
+        mAttemptTimes.clear();
+
+        final TestSubscriber<String> subscriber =
+                guard(resiliencePolicy, failing(new IOException("reset")));
+
+        assertEquals(0, mAttemptTimes.size());
+        subscriber.assertError(CircuitOpenException.class);
+    }
+
+    @Test
+    public void classifiesThrottlingServerAndNetworkErrorsAsTransient() {
+        assertTrue(ResiliencePolicy.isTransient(new WebServiceException(429, "slow down")));
+        assertTrue(ResiliencePolicy.isTransient(new WebServiceException(500, "broken")));
+        assertTrue(ResiliencePolicy.isTransient(new WebServiceException(503, "busy")));
+        assertTrue(ResiliencePolicy.isTransient(new WebServiceTimeoutException(ENDPOINT, 8000)));
+        assertTrue(ResiliencePolicy.isTransient(new IOException("reset")));
+        assertTrue(ResiliencePolicy.isTransient(
+                RetrofitError.networkError("http://test", new IOException("reset"))));
+        assertTrue(ResiliencePolicy.isTransient(httpError(429)));
+        assertTrue(ResiliencePolicy.isTransient(httpError(502)));
+    }
+
+    @Test
+    public void classifiesClientErrorsAndFastFailuresAsPermanent() {
+        assertFalse(ResiliencePolicy.isTransient(new WebServiceException(401, "bad key")));
+        assertFalse(ResiliencePolicy.isTransient(new WebServiceException(404, "not found")));
+        assertFalse(ResiliencePolicy.isTransient(httpError(400)));
+        assertFalse(ResiliencePolicy.isTransient(new CircuitOpenException(ENDPOINT)));
+        assertFalse(ResiliencePolicy.isTransient(
+                new RequestShedException(RateLimiter.Priority.BULK)));
+        assertFalse(ResiliencePolicy.isTransient(new IllegalStateException()));
+    }
+
+    /**
+     * A policy whose jitter always draws the given fraction of its range.
+     */
+    private ResiliencePolicy policy(final double jitter) {
+        return new ResiliencePolicy(mClock, mScheduler, new Random() {
+            @Override
+            public double nextDouble() {
+                return jitter;
+            }
+        });
+    }
+
+    private TestSubscriber<String> guard(final ResiliencePolicy resiliencePolicy,
+                                         final Observable<String> request) {
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        request.compose(resiliencePolicy.<String>guard(ENDPOINT, TIMEOUT)).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private Observable<String> failing(final Throwable error) {
+        return attempt(Observable.<String>error(error));
+    }
+
+    private Observable<String> hanging() {
+        return attempt(Observable.<String>never());
+    }
+
+    /**
+     * Record when each attempt at a request is made and cancelled.
+     */
+    private Observable<String> attempt(final Observable<String> result) {
+        return Observable.defer(new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                mAttemptTimes.add(mScheduler.now());
+                return result;
+            }
+        }).doOnUnsubscribe(new Action0() {
+            @Override
+            public void call() {
+                mCancelTimes.add(mScheduler.now());
+            }
+        });
+    }
+
+    private static RetrofitError httpError(final int status) {
+        return RetrofitError.httpError("http://test",
+                new Response("http://test", status, "", Collections.<Header>emptyList(), null),
+                null, null);
+    }
+
+    private void advance(final long milliseconds) {
+        mScheduler.advanceTimeBy(milliseconds, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,180 @@
+package mu.node.rexweather.app.Services;
+
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import retrofit.converter.ConversionException;
+import retrofit.mime.TypedByteArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WeatherJsonConverterTest {
+    private static final float DELTA = 0.001f;
+
+    // Trimmed down versions of the responses recorded for the benchmarks.
+    private static final String CURRENT_WEATHER = "{\"coord\":{\"lon\":-122.42,\"lat\":37.77},"
+            + "\"weather\":[{\"id\":801,\"main\":\"Clouds\",\"description\":\"few clouds\"},"
+            + "{\"id\":500,\"main\":\"Rain\"}],\"base\":\"cmc stations\","
+            + "\"main\":{\"temp\":17.84,\"pressure\":1015,\"temp_min\":15.56,\"temp_max\":20.0},"
+            + "\"dt\":1444086000,\"sys\":{\"message\":0.0104,\"country\":\"US\"},"
+            + "\"id\":5391959,\"name\":\"San Francisco\",\"cod\":200}";
+
+    private static final String DAILY_FORECASTS = "{\"cod\":\"200\",\"message\":0.0219,"
+            + "\"cnt\":2,\"list\":["
+            + "{\"dt\":1444075200,\"temp\":{\"day\":18.0,\"min\":12.9,\"max\":20.2},"
+            + "\"weather\":[{\"id\":800,\"main\":\"Clear\"}],\"speed\":2.1},"
+            + "{\"dt\":1444161600,\"temp\":{\"day\":20.52,\"min\":15.42,\"max\":22.72},"
+            + "\"weather\":[{\"id\":801,\"main\":\"Clouds\"}],\"speed\":2.5}],"
+            + "\"city\":{\"id\":5391959,\"name\":\"San Francisco\",\"country\":\"US\"}}";
+
+    private static final String HOURLY_FORECASTS = "{\"city\":{\"name\":\"San Francisco\"},"
+            + "\"cod\":\"200\",\"message\":0.0032,\"cnt\":3,\"list\":["
+            + "{\"dt\":1444089600,\"main\":{\"temp\":18.1,\"temp_min\":16.5,\"temp_max\":18.1},"
+            + "\"weather\":[{\"id\":801}],\"dt_txt\":\"2015-10-06 00:00:00\"},"
+            + "{\"dt\":1444100400,\"main\":{\"temp\":15.2,\"temp_min\":14.0,\"temp_max\":15.2},"
+            + "\"weather\":[{\"id\":800}],\"dt_txt\":\"2015-10-06 03:00:00\"},"
+            + "{\"dt\":1444111200,\"main\":{\"temp\":13.4,\"temp_min\":12.7,\"temp_max\":13.4},"
+            + "\"weather\":[{\"id\":500}],\"dt_txt\":\"2015-10-06 06:00:00\"}]}";
+
+    private final WeatherJsonConverter mConverter = new WeatherJsonConverter();
+
+    @Test
+    public void parsesCurrentWeather() throws Exception {
+        final CurrentWeather currentWeather =
+                (CurrentWeather) convert(CURRENT_WEATHER, CurrentWeather.class);
+
+        assertEquals(5391959, currentWeather.getCityId());
+        assertEquals("San Francisco", currentWeather.getLocationName());
+        assertEquals(1444086000L, currentWeather.getTimestamp());
+        assertSame(WeatherCondition.forCode(801), currentWeather.getCondition());
+        assertEquals(17.84f, currentWeather.getTemperature(), DELTA);
+        assertEquals(15.56f, currentWeather.getMinimumTemperature(), DELTA);
+        assertEquals(20.0f, currentWeather.getMaximumTemperature(), DELTA);
+    }
+
+    @Test
+    public void parsesDailyForecastsWhateverTheOrderOfTheirFields() throws Exception {
+        final ForecastSeries forecasts =
+                (ForecastSeries) convert(DAILY_FORECASTS, ForecastSeries.class);
+
+        assertEquals("San Francisco", forecasts.getLocationName());
+        assertEquals(2, forecasts.size());
+        assertEquals(1444075200L, forecasts.getTimestamp(0));
+        assertSame(WeatherCondition.forCode(800), forecasts.getCondition(0));
+        assertEquals(12.9f, forecasts.getMinimumTemperature(0), DELTA);
+        assertEquals(20.2f, forecasts.getMaximumTemperature(0), DELTA);
+        assertEquals(1444161600L, forecasts.getTimestamp(1));
+        assertSame(WeatherCondition.forCode(801), forecasts.getCondition(1));
+        assertEquals(15.42f, forecasts.getMinimumTemperature(1), DELTA);
+        assertEquals(22.72f, forecasts.getMaximumTemperature(1), DELTA);
+    }
+
+    @Test
+    public void parsesHourlyForecasts() throws Exception {
+        final HourlyForecast forecast =
+                (HourlyForecast) convert(HOURLY_FORECASTS, HourlyForecast.class);
+        final ForecastSeries hourlyForecasts = forecast.getHourlyForecasts();
+
+        assertEquals("San Francisco", hourlyForecasts.getLocationName());
+        assertEquals(3, hourlyForecasts.size());
+        assertEquals(1444100400L, hourlyForecasts.getTimestamp(1));
+        assertSame(WeatherCondition.forCode(800), hourlyForecasts.getCondition(1));
+        assertEquals(14.0f, hourlyForecasts.getMinimumTemperature(1), DELTA);
+        assertEquals(15.2f, hourlyForecasts.getMaximumTemperature(1), DELTA);
+        assertEquals("San Francisco", forecast.getDailyForecasts().getLocationName());
+        assertTrue(forecast.getDailyForecasts().size() > 0);
+    }
+
+    @Test
+    public void parsesTheCurrentWeatherOfSeveralCities() throws Exception {
+        final Type type = new TypeToken<List<CurrentWeather>>() {
+        }.getType();
+
+        @SuppressWarnings("unchecked")
+        final List<CurrentWeather> currentWeather = (List<CurrentWeather>) convert(
+                "{\"cnt\":2,\"list\":[" + CURRENT_WEATHER + ","
+                        + "{\"id\":2643743,\"name\":\"London\",\"dt\":1444086000}]}", type);
+
+        assertEquals(2, currentWeather.size());
+        assertEquals("San Francisco", currentWeather.get(0).getLocationName());
+        assertEquals(2643743, currentWeather.get(1).getCityId());
+        assertSame(WeatherCondition.UNKNOWN, currentWeather.get(1).getCondition());
+    }
+
+    @Test
+    public void failsWithTheWebServiceErrorForCodesOtherThan200() throws Exception {
+        final ConversionException e = convertExpectingFailure(
+                "{\"cod\":\"404\",\"message\":\"city not found\"}", ForecastSeries.class);
+
+        assertTrue(e.getCause() instanceof WebServiceException);
+        assertEquals(404, ((WebServiceException) e.getCause()).getCode());
+        assertEquals(e.getCause().getMessage(), e.getMessage());
+    }
+
+    @Test
+    public void failsWithTheWebServiceErrorIfTheCodeIsMissing() throws Exception {
+        final ConversionException e =
+                convertExpectingFailure("{\"name\":\"Nowhere\"}", CurrentWeather.class);
+
+        assertTrue(e.getCause() instanceof WebServiceException);
+    }
+
+    @Test
+    public void skipsUnknownAndNullFields() throws Exception {
+        final CurrentWeather currentWeather = (CurrentWeather) convert("{\"cod\":200,"
+                + "\"extra\":{\"nested\":[1,{\"deeper\":null}],\"flag\":true},\"rain\":null,"
+                + "\"name\":null,\"message\":null,\"weather\":[],"
+                + "\"main\":{\"humidity\":null,\"temp\":3.5},\"id\":7}", CurrentWeather.class);
+
+        assertEquals(7, currentWeather.getCityId());
+        assertNull(currentWeather.getLocationName());
+        assertSame(WeatherCondition.UNKNOWN, currentWeather.getCondition());
+        assertEquals(3.5f, currentWeather.getTemperature(), DELTA);
+    }
+
+    @Test
+    public void failsWithAConversionErrorForMalformedBodies() throws Exception {
+        convertExpectingFailure("{\"cod\":200,\"list\":[{\"dt\":", ForecastSeries.class);
+        convertExpectingFailure("{\"cod\":200,\"dt\":\"yesterday\"}", CurrentWeather.class);
+        convertExpectingFailure("[]", CurrentWeather.class);
+        convertExpectingFailure("", HourlyForecast.class);
+    }
+
+    @Test
+    public void failsWithAConversionErrorForUnsupportedTypes() throws Exception {
+        convertExpectingFailure(CURRENT_WEATHER, String.class);
+    }
+
+    private Object convert(final String json, final Type type) throws Exception {
+        return mConverter.fromBody(body(json), type);
+    }
+
+    private ConversionException convertExpectingFailure(final String json, final Type type)
+            throws UnsupportedEncodingException {
+        try {
+            mConverter.fromBody(body(json), type);
+        } catch (ConversionException e) {
+            return e;
+        }
+
+        fail("Converted " + json);
+        return null;
+    }
+
+    private static TypedByteArray body(final String json) throws UnsupportedEncodingException {
+        return new TypedByteArray("application/json; charset=UTF-8", json.getBytes("UTF-8"));
+    }
+}
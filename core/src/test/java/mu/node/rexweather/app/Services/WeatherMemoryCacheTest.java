@@ -0,0 +1,109 @@
+package mu.node.rexweather.app.Services;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.WeatherCondition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class WeatherMemoryCacheTest {
+    private static final int MAXIMUM_ENTRIES = 4;
+    private static final long CURRENT_WEATHER_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final long FORECAST_TTL = TimeUnit.HOURS.toMillis(1);
+
+    private long mNow = 1000;
+    private final WeatherMemoryCache mCache = new WeatherMemoryCache(
+            WeatherMemoryCache.DEFAULT_GEOHASH_PRECISION, MAXIMUM_ENTRIES, new Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return mNow;
+                }
+            });
+
+    private final CurrentWeather mCurrentWeather = new CurrentWeather(2643743, "London", 0,
+            WeatherCondition.forCode(800), 17, 15, 20);
+    private final ForecastSeries mForecasts = new ForecastSeries("London");
+    private final HourlyForecast mHourlyForecast =
+            new HourlyForecast(new ForecastSeries("London"), new ForecastSeries("London"));
+
+    @Test
+    public void keepsCurrentWeatherForTenMinutes() {
+        mCache.putCurrentWeather("gcpvj", mCurrentWeather);
+
+        mNow += CURRENT_WEATHER_TTL;
+        assertSame(mCurrentWeather, mCache.getCurrentWeather("gcpvj"));
+
+        mNow += 1;
+        assertNull(mCache.getCurrentWeather("gcpvj"));
+    }
+
+    @Test
+    public void keepsForecastsForAnHour() {
+        mCache.putWeatherForecasts("gcpvj", mForecasts);
+        mCache.putHourlyForecast("gcpvj", mHourlyForecast);
+
+        mNow += FORECAST_TTL;
+        assertSame(mForecasts, mCache.getWeatherForecasts("gcpvj"));
+        assertSame(mHourlyForecast, mCache.getHourlyForecast("gcpvj"));
+
+        mNow += 1;
+        assertNull(mCache.getWeatherForecasts("gcpvj"));
+        assertNull(mCache.getHourlyForecast("gcpvj"));
+    }
+
+    @Test
+    public void restartsTheTimeToLiveWhenAnEntryIsReplaced() {
+        mCache.putCurrentWeather("gcpvj", mCurrentWeather);
+        mNow += CURRENT_WEATHER_TTL;
+        mCache.putCurrentWeather("gcpvj", mCurrentWeather);
+
+        mNow += CURRENT_WEATHER_TTL;
+        assertSame(mCurrentWeather, mCache.getCurrentWeather("gcpvj"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntryOnceFull() {
+        for (int i = 0; i < MAXIMUM_ENTRIES; i++) {
+            mCache.putCurrentWeather("cell" + i, mCurrentWeather);
+        }
+        mCache.getCurrentWeather("cell0");
+
+        mCache.putCurrentWeather("cell" + MAXIMUM_ENTRIES, mCurrentWeather);
+
+        assertSame(mCurrentWeather, mCache.getCurrentWeather("cell0"));
+        assertNull(mCache.getCurrentWeather("cell1"));
+        assertSame(mCurrentWeather, mCache.getCurrentWeather("cell2"));
+    }
+
+    @Test
+    public void trimsTheLeastRecentlyUsedEntries() {
+        for (int i = 0; i < MAXIMUM_ENTRIES; i++) {
+            mCache.putWeatherForecasts("cell" + i, mForecasts);
+        }
+        mCache.getWeatherForecasts("cell0");
+
+        mCache.trimToFraction(0.5f);
+
+        assertSame(mForecasts, mCache.getWeatherForecasts("cell0"));
+        assertSame(mForecasts, mCache.getWeatherForecasts("cell3"));
+        assertNull(mCache.getWeatherForecasts("cell1"));
+        assertNull(mCache.getWeatherForecasts("cell2"));
+
+        mCache.evictAll();
+        assertNull(mCache.getWeatherForecasts("cell0"));
+    }
+
+    @Test
+    public void sharesCellsBetweenNearbyFixes() {
+        assertEquals(mCache.getCell(-0.1278, 51.5074), mCache.getCell(-0.1279, 51.5075));
+        assertNotEquals(mCache.getCell(-0.1278, 51.5074), mCache.getCell(2.3522, 48.8566));
+    }
+}
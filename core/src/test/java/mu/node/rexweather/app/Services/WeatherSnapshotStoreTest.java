@@ -0,0 +1,194 @@
+package mu.node.rexweather.app.Services;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import mu.node.rexweather.app.Models.CurrentWeather;
+import mu.node.rexweather.app.Models.ForecastSeries;
+import mu.node.rexweather.app.Models.HourlyForecast;
+import mu.node.rexweather.app.Models.WeatherCondition;
+import mu.node.rexweather.app.Models.WeatherSnapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class WeatherSnapshotStoreTest {
+    private static final int MAGIC = 0x52585753;
+    private static final int VERSION = 3;
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mFile;
+    private WeatherSnapshotStore mStore;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mTemporaryFolder.getRoot(), "weather.snapshot");
+        mStore = new WeatherSnapshotStore(mFile, new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void readsNothingBeforeTheFirstWrite() {
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void readsBackTheSnapshotItWrote() throws IOException {
+        final WeatherSnapshot snapshot = new WeatherSnapshot(currentWeather(),
+                forecasts("Port Louis", 7)).withLocationCell("mk2e");
+        mStore.write(snapshot);
+
+        final WeatherSnapshot storedSnapshot = mStore.read();
+
+        assertEquals("mk2e", storedSnapshot.getLocationCell());
+        assertCurrentWeatherEquals(snapshot.getCurrentWeather(),
+                storedSnapshot.getCurrentWeather());
+        assertForecastsEqual(snapshot.getWeatherForecasts(),
+                storedSnapshot.getWeatherForecasts());
+        assertFalse(storedSnapshot.isHourly());
+    }
+
+    @Test
+    public void storesHourlySnapshotsAsTheirDailyForecasts() {
+        final ForecastSeries dailyForecasts = forecasts("Port Louis", 5);
+        final WeatherSnapshot snapshot = new WeatherSnapshot(currentWeather(),
+                new HourlyForecast(forecasts("Port Louis", 40), dailyForecasts));
+        mStore.writeInBackground(snapshot);
+
+        final WeatherSnapshot storedSnapshot = mStore.read();
+
+        assertFalse(storedSnapshot.isHourly());
+        assertForecastsEqual(dailyForecasts, storedSnapshot.getWeatherForecasts());
+    }
+
+    @Test
+    public void readsBackASnapshotWithoutCurrentWeather() throws IOException {
+        mStore.write(new WeatherSnapshot(null, forecasts(null, 0)));
+
+        final WeatherSnapshot storedSnapshot = mStore.read();
+
+        assertNull(storedSnapshot.getCurrentWeather());
+        assertNull(storedSnapshot.getLocationCell());
+        assertNull(storedSnapshot.getWeatherForecasts().getLocationName());
+        assertEquals(0, storedSnapshot.getWeatherForecasts().size());
+    }
+
+    @Test
+    public void ignoresAFileOfAnotherFormat() throws IOException {
+        writeHeader(0x12345678, VERSION).close();
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void ignoresAFileOfAnotherVersion() throws IOException {
+        writeHeader(MAGIC, VERSION - 1).close();
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void ignoresATruncatedFile() throws IOException {
+        mStore.write(new WeatherSnapshot(currentWeather(), forecasts("Port Louis", 7))
+                .withLocationCell("mk2e"));
+
+        // Cut the file off in the middle of the current weather's location name.
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(4 + 4 + 4 + 4 + 1 + 4 + 4 + 3);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void ignoresAStringLongerThanTheFileWithoutAllocatingIt() throws IOException {
+        final DataOutputStream output = writeHeader(MAGIC, VERSION);
+        try {
+            // Allocating this many bytes would fail, rather than just be slow.
+            output.writeInt(Integer.MAX_VALUE);
+            output.writeBytes("mk2e");
+        } finally {
+            output.close();
+        }
+
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void ignoresMoreForecastsThanTheFileHolds() throws IOException {
+        final DataOutputStream output = writeHeader(MAGIC, VERSION);
+        try {
+            output.writeInt(-1);
+            output.writeBoolean(false);
+            output.writeInt(-1);
+            output.writeInt(Integer.MAX_VALUE);
+            output.writeLong(1000);
+        } finally {
+            output.close();
+        }
+
+        assertNull(mStore.read());
+    }
+
+    private DataOutputStream writeHeader(final int magic, final int version)
+            throws IOException {
+        final DataOutputStream output = new DataOutputStream(new FileOutputStream(mFile));
+        output.writeInt(magic);
+        output.writeInt(version);
+        return output;
+    }
+
+    private static CurrentWeather currentWeather() {
+        return new CurrentWeather(934154, "Port Louis", 1437000000, WeatherCondition.forCode(500),
+                24.5f, 21, 27.25f);
+    }
+
+    private static ForecastSeries forecasts(final String locationName, final int size) {
+        final ForecastSeries forecasts = new ForecastSeries(locationName, size);
+        for (int i = 0; i < size; i++) {
+            forecasts.append(1437000000 + i * 86400,
+                    WeatherCondition.forCode(i % 2 == 0 ? 800 : 501), 18 + i, 25.5f + i);
+        }
+        return forecasts;
+    }
+
+    private static void assertCurrentWeatherEquals(final CurrentWeather expected,
+                                                   final CurrentWeather actual) {
+        assertEquals(expected.getCityId(), actual.getCityId());
+        assertEquals(expected.getLocationName(), actual.getLocationName());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getCondition(), actual.getCondition());
+        assertEquals(expected.getTemperature(), actual.getTemperature(), 0);
+        assertEquals(expected.getMinimumTemperature(), actual.getMinimumTemperature(), 0);
+        assertEquals(expected.getMaximumTemperature(), actual.getMaximumTemperature(), 0);
+    }
+
+    private static void assertForecastsEqual(final ForecastSeries expected,
+                                             final ForecastSeries actual) {
+        assertEquals(expected.getLocationName(), actual.getLocationName());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimestamp(i), actual.getTimestamp(i));
+            assertEquals(expected.getConditionCode(i), actual.getConditionCode(i));
+            assertEquals(expected.getMinimumTemperature(i), actual.getMinimumTemperature(i), 0);
+            assertEquals(expected.getMaximumTemperature(i), actual.getMaximumTemperature(i), 0);
+        }
+    }
+}